@@ -14,18 +14,25 @@ package ai.djl;
 
 import ai.djl.engine.Engine;
 import ai.djl.inference.Predictor;
+import ai.djl.metric.Metrics;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.nn.Block;
 import ai.djl.training.Trainer;
 import ai.djl.training.TrainingConfig;
+import ai.djl.translate.NoopTranslator;
+import ai.djl.translate.TranslateException;
 import ai.djl.translate.Translator;
+import ai.djl.util.Pair;
 import ai.djl.util.PairList;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -190,6 +197,59 @@ public interface Model extends AutoCloseable {
      */
     <I, O> Predictor<I, O> newPredictor(Translator<I, O> translator);
 
+    /**
+     * Creates a new Predictor that shares the parameters of the model where the engine allows it.
+     *
+     * <p>Predictors never write the parameters, so engines that would otherwise give each
+     * predictor its own copy of the parameters can let all of them read the model's. The default
+     * implementation calls {@link #newPredictor(Translator)}.
+     *
+     * @param translator the object used for pre-processing and postprocessing
+     * @param <I> the input object for pre-processing
+     * @param <O> the output object from postprocessing
+     * @return an instance of {@code Predictor}
+     */
+    default <I, O> Predictor<I, O> newSharedPredictor(Translator<I, O> translator) {
+        return newPredictor(translator);
+    }
+
+    /**
+     * Warms up the model by running zero filled inputs of the given shapes through it.
+     *
+     * <p>The first forward pass with a new input shape pays for memory planning and kernel
+     * selection. Running representative shapes right after loading moves this cost out of the
+     * first real requests. Each element of {@code inputShapes} describes the named inputs of one
+     * forward pass, and its duration is recorded in the "Warmup" metric. Call this method on the
+     * model of each device that will serve requests.
+     *
+     * @param inputShapes the input shapes of each warm-up pass
+     * @param metrics the {@link Metrics} to record the warm-up time in, or {@code null}
+     * @throws TranslateException if a warm-up pass fails
+     */
+    default void warmup(List<PairList<String, Shape>> inputShapes, Metrics metrics)
+            throws TranslateException {
+        DataType dataType = getDataType();
+        try (Predictor<NDList, NDList> predictor = newPredictor(new NoopTranslator());
+                NDManager manager = getNDManager().newSubManager()) {
+            for (PairList<String, Shape> shapes : inputShapes) {
+                NDList input = new NDList(shapes.size());
+                for (Pair<String, Shape> pair : shapes) {
+                    NDArray array = manager.zeros(pair.getValue(), dataType);
+                    array.setName(pair.getKey());
+                    input.add(array);
+                }
+                long begin = System.nanoTime();
+                NDList output = predictor.predict(input);
+                long duration = System.nanoTime() - begin;
+                output.close();
+                input.close();
+                if (metrics != null) {
+                    metrics.addMetric("Warmup", duration, "nano");
+                }
+            }
+        }
+    }
+
     /**
      * Returns the input descriptor of the model.
      *
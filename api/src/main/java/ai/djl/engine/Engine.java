@@ -15,6 +15,8 @@ package ai.djl.engine;
 import ai.djl.Device;
 import ai.djl.Model;
 import ai.djl.ndarray.NDManager;
+import ai.djl.nn.Block;
+import ai.djl.nn.HybridGraph;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -146,4 +148,18 @@ public abstract class Engine {
      * @return a new top-level {@code NDManager}
      */
     public abstract NDManager newBaseManager(Device device);
+
+    /**
+     * Creates a {@link HybridGraph} that runs the forward pass of a {@link Block} as graphs
+     * compiled by the engine.
+     *
+     * <p>The default implementation returns {@code null}, for engines that can only run blocks
+     * imperatively.
+     *
+     * @param block the block to compile
+     * @return a new {@link HybridGraph}, or {@code null} if the engine does not support it
+     */
+    public HybridGraph newHybridGraph(Block block) {
+        return null;
+    }
 }
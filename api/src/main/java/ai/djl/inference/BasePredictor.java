@@ -14,6 +14,7 @@ package ai.djl.inference;
 
 import ai.djl.Model;
 import ai.djl.metric.Metrics;
+import ai.djl.ndarray.MemoryTracker;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.nn.Block;
@@ -22,11 +23,19 @@ import ai.djl.translate.Batchifier;
 import ai.djl.translate.TranslateException;
 import ai.djl.translate.Translator;
 import ai.djl.translate.TranslatorContext;
+import ai.djl.util.Pair;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,13 +50,14 @@ public class BasePredictor<I, O> implements Predictor<I, O> {
 
     private static final Logger logger = LoggerFactory.getLogger(BasePredictor.class);
     private Translator<I, O> translator;
-    private long timestamp;
 
     protected Model model;
     protected NDManager manager;
     Metrics metrics;
     private Block block;
     private ParameterStore parameterStore;
+    // completes when the last queued asynchronous request is done, guarded by this
+    private CompletableFuture<?> lastRequest = CompletableFuture.completedFuture(null);
 
     /**
      * Creates a new instance of {@code BasePredictor} with the given {@link Model} and {@link
@@ -81,33 +91,77 @@ public class BasePredictor<I, O> implements Predictor<I, O> {
             if (batchifier == null) {
                 List<O> ret = new ArrayList<>(inputs.size());
                 for (I input : inputs) {
-                    timestamp = System.nanoTime();
+                    long timestamp = System.nanoTime();
                     NDList ndList = translator.processInput(context, input);
-                    preprocessEnd(ndList);
+                    timestamp = preprocessEnd(ndList, timestamp);
 
                     NDList result = forward(ndList);
-                    forwardEnd(result);
+                    timestamp = forwardEnd(result, timestamp);
 
                     ret.add(translator.processOutput(context, result));
-                    postProcessEnd();
+                    postProcessEnd(timestamp);
                 }
                 return ret;
             }
 
-            timestamp = System.nanoTime();
-            NDList inputBatch = processInputs(context, inputs);
-            preprocessEnd(inputBatch);
-
-            NDList result = forward(inputBatch);
-            forwardEnd(result);
-
-            return processOutputs(context, result);
+            Pair<NDList, Long> batch = preprocessStage(context, inputs);
+            Pair<NDList, Long> result = forwardStage(batch);
+            return postprocessStage(context, result);
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
             throw new TranslateException(e);
-        } finally {
-            postProcessEnd();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Requests are queued and run one at a time, each starting once the previous one is done.
+     * The input processing and forward pass run as one task on the {@code executor}, and the
+     * output processing runs as a second task once the first one is done. Since the engine may
+     * compute the forward pass asynchronously, the thread that runs the first task is released as
+     * soon as the operations have been submitted to the engine.
+     */
+    @Override
+    public synchronized CompletableFuture<List<O>> batchPredictAsync(
+            List<I> inputs, Executor executor) {
+        CompletableFuture<List<O>> future =
+                lastRequest
+                        .handle((ret, t) -> null)
+                        .thenCompose(ignore -> startBatchPredictAsync(inputs, executor));
+        lastRequest = future;
+        return future;
+    }
+
+    private CompletableFuture<List<O>> startBatchPredictAsync(List<I> inputs, Executor executor) {
+        if (translator.getBatchifier() == null) {
+            return Predictor.super.batchPredictAsync(inputs, executor);
+        }
+        TranslatorContext context = newContext();
+        try {
+            return CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return forwardStage(preprocessStage(context, inputs));
+                                } catch (Exception e) {
+                                    throw asCompletionException(e);
+                                }
+                            },
+                            executor)
+                    .thenApplyAsync(
+                            result -> {
+                                try {
+                                    return postprocessStage(context, result);
+                                } catch (Exception e) {
+                                    throw asCompletionException(e);
+                                }
+                            },
+                            executor)
+                    .whenComplete((ret, t) -> context.close());
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
         }
     }
 
@@ -124,12 +178,79 @@ public class BasePredictor<I, O> implements Predictor<I, O> {
         return block.forward(parameterStore, ndList);
     }
 
+    /**
+     * Returns the {@link Translator} of this predictor.
+     *
+     * @return the {@link Translator} of this predictor
+     */
+    Translator<I, O> getTranslator() {
+        return translator;
+    }
+
+    /**
+     * Creates a {@link TranslatorContext} for one batch.
+     *
+     * @return a new {@link TranslatorContext}
+     */
+    TranslatorContext newContext() {
+        return new PredictorContext();
+    }
+
+    /**
+     * Processes and batchifies the inputs of one batch.
+     *
+     * @param ctx the {@link TranslatorContext} of the batch
+     * @param inputs the inputs of the batch
+     * @return the batchified {@link NDList} and the stage end time
+     * @throws Exception if the input processing fails
+     */
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    Pair<NDList, Long> preprocessStage(TranslatorContext ctx, List<I> inputs) throws Exception {
+        long timestamp = System.nanoTime();
+        NDList inputBatch = processInputs(ctx, inputs);
+        return new Pair<>(inputBatch, preprocessEnd(inputBatch, timestamp));
+    }
+
+    /**
+     * Runs the forward pass of one batch.
+     *
+     * @param batch the output of {@link #preprocessStage(TranslatorContext, List)}
+     * @return the batched result and the stage end time
+     */
+    Pair<NDList, Long> forwardStage(Pair<NDList, Long> batch) {
+        NDList result = forward(batch.getKey());
+        return new Pair<>(result, forwardEnd(result, batch.getValue()));
+    }
+
+    /**
+     * Unbatchifies and processes the outputs of one batch.
+     *
+     * @param ctx the {@link TranslatorContext} of the batch
+     * @param result the output of {@link #forwardStage(Pair)}
+     * @return the list of outputs
+     * @throws Exception if the output processing fails
+     */
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    List<O> postprocessStage(TranslatorContext ctx, Pair<NDList, Long> result) throws Exception {
+        List<O> ret = processOutputs(ctx, result.getKey());
+        postProcessEnd(result.getValue());
+        return ret;
+    }
+
     @SuppressWarnings("PMD.SignatureDeclareThrowsException")
     private NDList processInputs(TranslatorContext ctx, List<I> inputs) throws Exception {
         int batchSize = inputs.size();
         NDList[] preprocessed = new NDList[batchSize];
-        for (int i = 0; i < batchSize; ++i) {
-            preprocessed[i] = translator.processInput(ctx, inputs.get(i));
+        if (translator.isParallelizable() && batchSize > 1) {
+            List<Callable<NDList>> tasks = new ArrayList<>(batchSize);
+            for (I input : inputs) {
+                tasks.add(() -> translator.processInput(ctx, input));
+            }
+            invokeAll(tasks).toArray(preprocessed);
+        } else {
+            for (int i = 0; i < batchSize; ++i) {
+                preprocessed[i] = translator.processInput(ctx, inputs.get(i));
+            }
         }
         return translator.getBatchifier().batchify(preprocessed);
     }
@@ -137,6 +258,13 @@ public class BasePredictor<I, O> implements Predictor<I, O> {
     @SuppressWarnings("PMD.SignatureDeclareThrowsException")
     private List<O> processOutputs(TranslatorContext ctx, NDList list) throws Exception {
         NDList[] unbatched = translator.getBatchifier().unbatchify(list);
+        if (translator.isParallelizable() && unbatched.length > 1) {
+            List<Callable<O>> tasks = new ArrayList<>(unbatched.length);
+            for (NDList output : unbatched) {
+                tasks.add(() -> translator.processOutput(ctx, output));
+            }
+            return invokeAll(tasks);
+        }
         List<O> outputs = new ArrayList<>(unbatched.length);
         for (NDList output : unbatched) {
             outputs.add(translator.processOutput(ctx, output));
@@ -144,35 +272,62 @@ public class BasePredictor<I, O> implements Predictor<I, O> {
         return outputs;
     }
 
-    private void preprocessEnd(NDList list) {
+    @SuppressWarnings("PMD.SignatureDeclareThrowsException")
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks) throws Exception {
+        List<Future<T>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+        List<T> ret = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                ret.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+        return ret;
+    }
+
+    private long preprocessEnd(NDList list, long timestamp) {
         if (metrics != null) {
             waitToRead(list);
             long tmp = System.nanoTime();
-            long duration = tmp - timestamp;
-            timestamp = tmp;
-            metrics.addMetric("Preprocess", duration, "nano");
+            metrics.addMetric("Preprocess", tmp - timestamp, "nano");
+            return tmp;
         }
+        return timestamp;
     }
 
-    private void forwardEnd(NDList list) {
+    private long forwardEnd(NDList list, long timestamp) {
         if (metrics != null) {
             waitToRead(list);
             long tmp = System.nanoTime();
-            long duration = tmp - timestamp;
-            timestamp = tmp;
-            metrics.addMetric("Inference", duration, "nano");
+            metrics.addMetric("Inference", tmp - timestamp, "nano");
+            // the outputs of the batch are still alive, so this is close to the peak of the batch
+            MemoryTracker tracker = manager.getMemoryTracker();
+            if (tracker != null && tracker.isEnabled()) {
+                tracker.addMetrics(metrics);
+            }
+            return tmp;
         }
+        return timestamp;
     }
 
-    private void postProcessEnd() {
+    private void postProcessEnd(long timestamp) {
         if (metrics != null) {
-            long tmp = System.nanoTime();
-            long duration = tmp - timestamp;
-            timestamp = tmp;
-            metrics.addMetric("Postprocess", duration, "nano");
+            metrics.addMetric("Postprocess", System.nanoTime() - timestamp, "nano");
         }
     }
 
+    static CompletionException asCompletionException(Exception e) {
+        if (e instanceof RuntimeException || e instanceof TranslateException) {
+            return new CompletionException(e);
+        }
+        return new CompletionException(new TranslateException(e));
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close() {
@@ -222,7 +377,11 @@ public class BasePredictor<I, O> implements Predictor<I, O> {
         /** {@inheritDoc} */
         @Override
         public void setAttachment(String key, Object value) {
-            attachments.put(key, value);
+            if (value == null) {
+                attachments.remove(key);
+            } else {
+                attachments.put(key, value);
+            }
         }
     }
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.inference;
+
+import ai.djl.metric.Metrics;
+import ai.djl.translate.Batchifier;
+import ai.djl.translate.TranslateException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@code BatchPredictor} is a {@link Predictor} that coalesces concurrent {@link #predict(Object)}
+ * calls into batches.
+ *
+ * <p>Inputs submitted from many threads are queued and flushed to the wrapped {@link Predictor} as
+ * one {@link Predictor#batchPredict(List)} call once either {@code maxBatchSize} inputs are waiting
+ * or the oldest waiting input has been queued for {@code maxDelay}. The wrapped predictor's {@link
+ * ai.djl.translate.Translator} {@link Batchifier} is then used to form the batch, and each caller
+ * receives its own output.
+ *
+ * <p>The wrapped predictor is only ever invoked from a single worker thread, so a {@code
+ * BatchPredictor} can be shared across threads even though the wrapped predictor is not thread
+ * safe. Batches are flushed through {@link Predictor#batchPredictAsync(List, Executor)} with a
+ * direct executor, so wrapping a {@link PipelinedPredictor} keeps several batches in flight.
+ *
+ * <pre>
+ * Predictor&lt;BufferedImage, Classifications&gt; base = model.newPredictor(translator);
+ * try (Predictor&lt;BufferedImage, Classifications&gt; predictor =
+ *         new BatchPredictor&lt;&gt;(base, 32, 5, TimeUnit.MILLISECONDS)) {
+ *     // can be called concurrently from request threads
+ *     Classifications result = predictor.predict(image);
+ * }
+ * </pre>
+ *
+ * @param <I> the input type
+ * @param <O> the output type
+ */
+public class BatchPredictor<I, O> implements Predictor<I, O> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchPredictor.class);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private Predictor<I, O> predictor;
+    private int maxBatchSize;
+    private long maxDelayNanos;
+    private BlockingQueue<Job<I, O>> queue;
+    private Thread worker;
+    private volatile boolean closed;
+    private Metrics metrics;
+
+    /**
+     * Creates a new instance of {@code BatchPredictor} that wraps the given {@link Predictor}.
+     *
+     * @param predictor the {@link Predictor} that runs the coalesced batches
+     * @param maxBatchSize the maximum number of inputs in a batch
+     * @param maxDelay the maximum time to wait for a batch to fill up
+     * @param unit the {@link TimeUnit} of {@code maxDelay}
+     */
+    public BatchPredictor(
+            Predictor<I, O> predictor, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay must not be negative: " + maxDelay);
+        }
+        this.predictor = predictor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        queue = new LinkedBlockingQueue<>();
+        worker = new Thread(this::run, "djl-batch-predictor-" + THREAD_NUMBER.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public O predict(I input) throws TranslateException {
+        return await(submit(input));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Inputs of the list are queued individually, so they may be combined with inputs from other
+     * callers, or split over several batches.
+     */
+    @Override
+    public List<O> batchPredict(List<I> inputs) throws TranslateException {
+        List<CompletableFuture<O>> futures = new ArrayList<>(inputs.size());
+        for (I input : inputs) {
+            futures.add(submit(input));
+        }
+        List<O> ret = new ArrayList<>(futures.size());
+        for (CompletableFuture<O> future : futures) {
+            ret.add(await(future));
+        }
+        return ret;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The input is queued for the next batch, so the {@code executor} is not used.
+     */
+    @Override
+    public CompletableFuture<O> predictAsync(I input, Executor executor) {
+        return submit(input);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The inputs are queued for the next batches, so the {@code executor} is not used.
+     */
+    @Override
+    public CompletableFuture<List<O>> batchPredictAsync(List<I> inputs, Executor executor) {
+        List<CompletableFuture<O>> futures = new ArrayList<>(inputs.size());
+        for (I input : inputs) {
+            futures.add(submit(input));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(
+                        v -> {
+                            List<O> ret = new ArrayList<>(futures.size());
+                            for (CompletableFuture<O> future : futures) {
+                                ret.add(future.join());
+                            }
+                            return ret;
+                        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        predictor.setMetrics(metrics);
+    }
+
+    /**
+     * Returns the maximum number of inputs in a batch.
+     *
+     * @return the maximum number of inputs in a batch
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Returns the number of inputs that are waiting to be batched.
+     *
+     * @return the number of inputs that are waiting to be batched
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Inputs that are still queued fail with a {@link TranslateException}, and the wrapped
+     * {@link Predictor} is closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Job<I, O>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Job<I, O> job : pending) {
+            job.future.completeExceptionally(
+                    new TranslateException("BatchPredictor has been closed."));
+        }
+        predictor.close();
+    }
+
+    private CompletableFuture<O> submit(I input) {
+        if (closed) {
+            throw new IllegalStateException("BatchPredictor has been closed.");
+        }
+        Job<I, O> job = new Job<>(input);
+        queue.add(job);
+        if (closed && queue.remove(job)) {
+            // raced with close(), the job would never be picked up
+            throw new IllegalStateException("BatchPredictor has been closed.");
+        }
+        return job.future;
+    }
+
+    private O await(CompletableFuture<O> future) throws TranslateException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslateException("Interrupted while waiting for prediction.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TranslateException) {
+                throw (TranslateException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new TranslateException(cause);
+        }
+    }
+
+    private void run() {
+        List<Job<I, O>> jobs = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                jobs.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (jobs.size() < maxBatchSize) {
+                    if (queue.drainTo(jobs, maxBatchSize - jobs.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Job<I, O> job = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (job == null) {
+                        break;
+                    }
+                    jobs.add(job);
+                }
+            } catch (InterruptedException e) {
+                // close() has been called, fail the jobs that were not flushed
+                for (Job<I, O> job : jobs) {
+                    job.future.completeExceptionally(
+                            new TranslateException("BatchPredictor has been closed."));
+                }
+                return;
+            }
+            flush(jobs);
+            jobs.clear();
+        }
+    }
+
+    private void flush(List<Job<I, O>> jobs) {
+        int batchSize = jobs.size();
+        List<Job<I, O>> batch = new ArrayList<>(jobs);
+        List<I> inputs = new ArrayList<>(batchSize);
+        for (Job<I, O> job : batch) {
+            inputs.add(job.input);
+        }
+        if (metrics != null) {
+            metrics.addMetric("BatchSize", batchSize);
+        }
+        logger.trace("Flushing batch of size: {}", batchSize);
+        try {
+            // runs inline for a blocking predictor, but lets a pipelined predictor take the
+            // next batch while this one is still in flight
+            predictor
+                    .batchPredictAsync(inputs, Runnable::run)
+                    .whenComplete(
+                            (outputs, t) -> {
+                                if (t == null) {
+                                    for (int i = 0; i < batchSize; ++i) {
+                                        batch.get(i).future.complete(outputs.get(i));
+                                    }
+                                } else {
+                                    fail(batch, t);
+                                }
+                            });
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void fail(List<Job<I, O>> batch, Throwable t) {
+        Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+        for (Job<I, O> job : batch) {
+            job.future.completeExceptionally(cause);
+        }
+    }
+
+    private static final class Job<I, O> {
+
+        I input;
+        CompletableFuture<O> future;
+
+        Job(I input) {
+            this.input = input;
+            future = new CompletableFuture<>();
+        }
+    }
+}
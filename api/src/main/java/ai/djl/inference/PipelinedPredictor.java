@@ -0,0 +1,273 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.inference;
+
+import ai.djl.Model;
+import ai.djl.metric.Metrics;
+import ai.djl.ndarray.NDList;
+import ai.djl.translate.TranslateException;
+import ai.djl.translate.Translator;
+import ai.djl.translate.TranslatorContext;
+import ai.djl.util.Pair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code PipelinedPredictor} is a {@link Predictor} that overlaps the input processing, forward
+ * pass and output processing of consecutive batches.
+ *
+ * <p>Each of the three stages runs on its own thread, connected by bounded queues. While batch N is
+ * running through the model, batch N+1 is being processed by {@link
+ * Translator#processInput(TranslatorContext, Object)} and batch N-1 by {@link
+ * Translator#processOutput(TranslatorContext, NDList)}. The pipeline is kept full when batches are
+ * submitted from several threads, or through {@link #batchPredictAsync(List, Executor)}.
+ *
+ * <p>When the queue in front of a stage is full, callers block until there is room, so that at most
+ * {@code queueSize} batches wait between two stages.
+ *
+ * @param <I> the input type
+ * @param <O> the output type
+ */
+public class PipelinedPredictor<I, O> implements Predictor<I, O> {
+
+    private static final AtomicInteger PIPELINE_NUMBER = new AtomicInteger();
+
+    private BasePredictor<I, O> predictor;
+    private BlockingQueue<Job> preprocessQueue;
+    private BlockingQueue<Job> forwardQueue;
+    private BlockingQueue<Job> postprocessQueue;
+    private List<Thread> workers;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance of {@code PipelinedPredictor}.
+     *
+     * @param model the model on which the predictions are based
+     * @param translator the translator to be used, it must have a {@link
+     *     ai.djl.translate.Batchifier}
+     * @param queueSize the maximum number of batches waiting in front of each stage
+     */
+    public PipelinedPredictor(Model model, Translator<I, O> translator, int queueSize) {
+        if (translator.getBatchifier() == null) {
+            throw new IllegalArgumentException("Pipelined prediction requires a Batchifier.");
+        }
+        Predictor<I, O> base = model.newPredictor(translator);
+        if (!(base instanceof BasePredictor)) {
+            base.close();
+            throw new IllegalArgumentException(
+                    "Pipelined prediction is not supported by: " + base.getClass().getName());
+        }
+        predictor = (BasePredictor<I, O>) base;
+        preprocessQueue = new ArrayBlockingQueue<>(queueSize);
+        forwardQueue = new ArrayBlockingQueue<>(queueSize);
+        postprocessQueue = new ArrayBlockingQueue<>(queueSize);
+
+        int id = PIPELINE_NUMBER.incrementAndGet();
+        workers = new ArrayList<>(3);
+        workers.add(new Thread(this::preprocess, "djl-pipeline-" + id + "-preprocess"));
+        workers.add(new Thread(this::forward, "djl-pipeline-" + id + "-forward"));
+        workers.add(new Thread(this::postprocess, "djl-pipeline-" + id + "-postprocess"));
+        for (Thread worker : workers) {
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public O predict(I input) throws TranslateException {
+        return batchPredict(Collections.singletonList(input)).get(0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<O> batchPredict(List<I> inputs) throws TranslateException {
+        try {
+            return submit(inputs).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslateException("Interrupted while waiting for prediction.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof TranslateException) {
+                throw (TranslateException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new TranslateException(cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The batch is queued into the pipeline, so the {@code executor} is not used.
+     */
+    @Override
+    public CompletableFuture<List<O>> batchPredictAsync(List<I> inputs, Executor executor) {
+        try {
+            return submit(inputs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<List<O>> future = new CompletableFuture<>();
+            future.completeExceptionally(
+                    new CompletionException(
+                            new TranslateException("Interrupted while queueing batch.", e)));
+            return future;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setMetrics(Metrics metrics) {
+        predictor.setMetrics(metrics);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Batches that are still in the pipeline fail with a {@link TranslateException}.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Job> pending = new ArrayList<>();
+        preprocessQueue.drainTo(pending);
+        forwardQueue.drainTo(pending);
+        postprocessQueue.drainTo(pending);
+        for (Job job : pending) {
+            job.fail(new TranslateException("PipelinedPredictor has been closed."));
+        }
+        predictor.close();
+    }
+
+    private CompletableFuture<List<O>> submit(List<I> inputs) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("PipelinedPredictor has been closed.");
+        }
+        Job job = new Job(inputs);
+        preprocessQueue.put(job);
+        if (closed && preprocessQueue.remove(job)) {
+            // raced with close(), the job would never be picked up
+            throw new IllegalStateException("PipelinedPredictor has been closed.");
+        }
+        return job.future;
+    }
+
+    private void preprocess() {
+        Job job = null;
+        try {
+            while (!closed) {
+                job = preprocessQueue.take();
+                try {
+                    job.context = predictor.newContext();
+                    job.data = predictor.preprocessStage(job.context, job.inputs);
+                } catch (Exception e) {
+                    job.fail(e);
+                    job = null;
+                    continue;
+                }
+                forwardQueue.put(job);
+                job = null;
+            }
+        } catch (InterruptedException e) {
+            if (job != null) {
+                job.fail(new TranslateException("PipelinedPredictor has been closed."));
+            }
+        }
+    }
+
+    private void forward() {
+        Job job = null;
+        try {
+            while (!closed) {
+                job = forwardQueue.take();
+                try {
+                    job.data = predictor.forwardStage(job.data);
+                } catch (RuntimeException e) {
+                    job.fail(e);
+                    job = null;
+                    continue;
+                }
+                postprocessQueue.put(job);
+                job = null;
+            }
+        } catch (InterruptedException e) {
+            if (job != null) {
+                job.fail(new TranslateException("PipelinedPredictor has been closed."));
+            }
+        }
+    }
+
+    private void postprocess() {
+        try {
+            while (!closed) {
+                Job job = postprocessQueue.take();
+                try {
+                    List<O> outputs = predictor.postprocessStage(job.context, job.data);
+                    job.context.close();
+                    job.future.complete(outputs);
+                } catch (Exception e) {
+                    job.fail(e);
+                }
+            }
+        } catch (InterruptedException ignore) {
+            // close() has been called
+        }
+    }
+
+    /** The state of one batch as it moves through the pipeline. */
+    private final class Job {
+
+        List<I> inputs;
+        TranslatorContext context;
+        Pair<NDList, Long> data;
+        CompletableFuture<List<O>> future;
+
+        Job(List<I> inputs) {
+            this.inputs = inputs;
+            future = new CompletableFuture<>();
+        }
+
+        void fail(Exception e) {
+            if (context != null) {
+                context.close();
+            }
+            future.completeExceptionally(BasePredictor.asCompletionException(e));
+        }
+    }
+}
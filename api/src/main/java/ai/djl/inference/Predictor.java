@@ -16,7 +16,11 @@ import ai.djl.Model;
 import ai.djl.metric.Metrics;
 import ai.djl.translate.TranslateException;
 import ai.djl.translate.Translator;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * The {@code Predictor} interface provides model inference functionality.
@@ -35,6 +39,15 @@ import java.util.List;
  * }
  * </pre>
  *
+ * <p>The {@code predictAsync} and {@code batchPredictAsync} variants return a {@link
+ * CompletableFuture} instead of blocking the calling thread until the prediction is done. They run
+ * on an {@link Executor} chosen by the caller, as inference blocks on native code and should not
+ * tie up a shared pool like the common {@link java.util.concurrent.ForkJoinPool}.
+ *
+ * <p>A {@code Predictor} is not thread safe and runs one request at a time: asynchronous requests
+ * on the same predictor are queued behind each other. Use a {@link PredictorPool} or several
+ * predictors to run requests concurrently.
+ *
  * <p>See the tutorials on:
  *
  * <ul>
@@ -74,6 +87,47 @@ public interface Predictor<I, O> extends AutoCloseable {
      */
     List<O> batchPredict(List<I> inputs) throws TranslateException;
 
+    /**
+     * Predicts an item for inference asynchronously.
+     *
+     * <p>If the prediction fails, the returned {@link CompletableFuture} completes exceptionally
+     * with a {@link CompletionException} that wraps the {@link TranslateException}.
+     *
+     * @param input the input
+     * @param executor the {@link Executor} to run the prediction on
+     * @return a {@link CompletableFuture} of the output object defined by the user
+     */
+    default CompletableFuture<O> predictAsync(I input, Executor executor) {
+        return batchPredictAsync(Collections.singletonList(input), executor)
+                .thenApply(list -> list.get(0));
+    }
+
+    /**
+     * Predicts a batch for inference asynchronously.
+     *
+     * <p>The default implementation does not queue the requests, so it may only be used by
+     * predictors that are thread safe. Other predictors must override it to run one request at a
+     * time.
+     *
+     * <p>If the prediction fails, the returned {@link CompletableFuture} completes exceptionally
+     * with a {@link CompletionException} that wraps the {@link TranslateException}.
+     *
+     * @param inputs a list of inputs
+     * @param executor the {@link Executor} to run the prediction on
+     * @return a {@link CompletableFuture} of the list of output objects defined by the user
+     */
+    default CompletableFuture<List<O>> batchPredictAsync(List<I> inputs, Executor executor) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return batchPredict(inputs);
+                    } catch (TranslateException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
+    }
+
     /**
      * Attaches a Metrics param to use for benchmark.
      *
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.inference;
+
+import ai.djl.Model;
+import ai.djl.metric.Metrics;
+import ai.djl.translate.TranslateException;
+import ai.djl.translate.Translator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code PredictorPool} lends out a bounded number of {@link Predictor}s of a {@link Model} to
+ * concurrent threads.
+ *
+ * <p>Each {@link Predictor} holds its own {@link ai.djl.ndarray.NDManager} and {@link
+ * ai.djl.training.ParameterStore}. The predictors are created with {@link
+ * Model#newSharedPredictor(Translator)}, so they read the parameters of the model instead of
+ * copying them where the engine allows it. Sharing a pool between worker threads bounds the memory
+ * to {@code maxSize} predictors instead of one predictor per thread. Predictors are created
+ * lazily, and a thread gets back the predictor it used last whenever that predictor is idle, so
+ * that engine side caches stay warm.
+ *
+ * <p>A borrowed predictor is returned to the pool when it is closed:
+ *
+ * <pre>
+ * try (PredictorPool&lt;BufferedImage, Classifications&gt; pool = model.newPredictorPool(4)) {
+ *     // on each worker thread
+ *     try (Predictor&lt;BufferedImage, Classifications&gt; predictor = pool.borrow()) {
+ *         Classifications result = predictor.predict(image);
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>The time spent waiting for an idle predictor is recorded in the "PredictorPoolWait" metric.
+ *
+ * @param <I> the input type
+ * @param <O> the output type
+ */
+public class PredictorPool<I, O> implements AutoCloseable {
+
+    private Model model;
+    private Translator<I, O> translator;
+    private int maxSize;
+    private Semaphore permits;
+    private Deque<Predictor<I, O>> idle;
+    private ThreadLocal<Predictor<I, O>> affinity;
+    private AtomicInteger created;
+    private volatile boolean closed;
+    private Metrics metrics;
+
+    /**
+     * Creates a new instance of {@code PredictorPool}.
+     *
+     * @param model the model to create predictors from
+     * @param translator the translator of the predictors
+     * @param maxSize the maximum number of predictors in the pool
+     */
+    public PredictorPool(Model model, Translator<I, O> translator, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.model = model;
+        this.translator = translator;
+        this.maxSize = maxSize;
+        permits = new Semaphore(maxSize, true);
+        idle = new ConcurrentLinkedDeque<>();
+        affinity = new ThreadLocal<>();
+        created = new AtomicInteger();
+    }
+
+    /**
+     * Borrows a {@link Predictor} from the pool, waiting until one is available.
+     *
+     * <p>The returned predictor must be closed to give it back to the pool.
+     *
+     * @return a {@link Predictor} from the pool
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Predictor<I, O> borrow() throws InterruptedException {
+        long begin = System.nanoTime();
+        permits.acquire();
+        return lease(begin);
+    }
+
+    /**
+     * Borrows a {@link Predictor} from the pool, waiting up to the specified time until one is
+     * available.
+     *
+     * <p>The returned predictor must be closed to give it back to the pool.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the {@link TimeUnit} of {@code timeout}
+     * @return a {@link Predictor} from the pool, or {@code null} if none became available in time
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Predictor<I, O> borrow(long timeout, TimeUnit unit) throws InterruptedException {
+        long begin = System.nanoTime();
+        if (!permits.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return lease(begin);
+    }
+
+    /**
+     * Predicts an item for inference with a predictor borrowed from the pool.
+     *
+     * @param input the input
+     * @return the output object defined by the user
+     * @throws TranslateException if an error occurs during prediction
+     */
+    public O predict(I input) throws TranslateException {
+        try (Predictor<I, O> predictor = borrowForPredict()) {
+            return predictor.predict(input);
+        }
+    }
+
+    /**
+     * Predicts a batch for inference with a predictor borrowed from the pool.
+     *
+     * @param inputs a list of inputs
+     * @return a list of output objects defined by the user
+     * @throws TranslateException if an error occurs during prediction
+     */
+    public List<O> batchPredict(List<I> inputs) throws TranslateException {
+        try (Predictor<I, O> predictor = borrowForPredict()) {
+            return predictor.batchPredict(inputs);
+        }
+    }
+
+    /**
+     * Attaches a {@link Metrics} to the pool and all of its predictors.
+     *
+     * @param metrics the {@link Metrics} class
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        for (Predictor<I, O> predictor : idle) {
+            predictor.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Returns the maximum number of predictors in the pool.
+     *
+     * @return the maximum number of predictors in the pool
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of predictors that have been created by the pool.
+     *
+     * @return the number of predictors that have been created by the pool
+     */
+    public int size() {
+        return created.get();
+    }
+
+    /**
+     * Returns the number of predictors that are currently idle in the pool.
+     *
+     * @return the number of predictors that are currently idle in the pool
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Idle predictors are closed immediately, and borrowed predictors are closed when they are
+     * returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Predictor<I, O> predictor;
+        while ((predictor = idle.poll()) != null) {
+            predictor.close();
+        }
+    }
+
+    private Predictor<I, O> borrowForPredict() throws TranslateException {
+        try {
+            return borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslateException("Interrupted while waiting for a predictor.", e);
+        }
+    }
+
+    private Predictor<I, O> lease(long begin) {
+        Predictor<I, O> predictor;
+        try {
+            if (closed) {
+                throw new IllegalStateException("PredictorPool has been closed.");
+            }
+            predictor = affinity.get();
+            if (predictor == null || !idle.remove(predictor)) {
+                predictor = idle.poll();
+            }
+            if (predictor == null) {
+                predictor = model.newSharedPredictor(translator);
+                created.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        predictor.setMetrics(metrics);
+        affinity.set(predictor);
+        if (metrics != null) {
+            metrics.addMetric("PredictorPoolWait", System.nanoTime() - begin, "nano");
+        }
+        return new PooledPredictor(predictor);
+    }
+
+    private void giveBack(Predictor<I, O> predictor) {
+        if (closed) {
+            predictor.close();
+        } else {
+            idle.addFirst(predictor);
+            if (closed && idle.remove(predictor)) {
+                // raced with close()
+                predictor.close();
+            }
+        }
+        permits.release();
+    }
+
+    /** A {@link Predictor} that is returned to the pool when closed. */
+    private final class PooledPredictor implements Predictor<I, O> {
+
+        private Predictor<I, O> predictor;
+
+        PooledPredictor(Predictor<I, O> predictor) {
+            this.predictor = predictor;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public O predict(I input) throws TranslateException {
+            return getPredictor().predict(input);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public List<O> batchPredict(List<I> inputs) throws TranslateException {
+            return getPredictor().batchPredict(inputs);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public CompletableFuture<List<O>> batchPredictAsync(List<I> inputs, Executor executor) {
+            return getPredictor().batchPredictAsync(inputs, executor);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void setMetrics(Metrics metrics) {
+            getPredictor().setMetrics(metrics);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized void close() {
+            if (predictor != null) {
+                giveBack(predictor);
+                predictor = null;
+            }
+        }
+
+        private synchronized Predictor<I, O> getPredictor() {
+            if (predictor == null) {
+                throw new IllegalStateException("Predictor has been returned to the pool.");
+            }
+            return predictor;
+        }
+    }
+}
@@ -145,6 +145,7 @@ public final class BufferedImageUtils {
         NDArray array = manager.create(new Shape(height, width, channel), DataType.UINT8);
         bb.rewind();
         array.set(bb);
+        manager.releaseDirect(bb);
         return array;
     }
 
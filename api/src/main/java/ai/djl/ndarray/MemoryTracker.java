@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.ndarray;
+
+import ai.djl.Device;
+import ai.djl.metric.Metrics;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code MemoryTracker} accounts for the native memory held by the {@link NDArray}s of an {@link
+ * NDManager}.
+ *
+ * <p>Trackers form the same tree as their managers: the bytes allocated and freed in a manager are
+ * also counted in all of its ancestors, so the tracker of a model's manager covers all of its
+ * predictors, and the tracker of the system manager covers the whole process.
+ *
+ * <p>An optional limit can be set on any tracker. Allocations that would take a tracker, or one of
+ * its ancestors, above its limit fail with a {@link MemoryLimitExceededException}. The limit is
+ * soft: concurrent allocations are checked independently, and only the memory of {@code NDArray}s
+ * is counted, not the workspace the engine allocates internally.
+ *
+ * <p>Counting is off by default, because it reads the size of every attached {@code NDArray}. It
+ * is on when {@link #setEnabled(boolean)} or {@link #setLimit(long)} has been called on the tracker
+ * or one of its ancestors. {@code NDArray}s attached while counting is off are never counted.
+ */
+public class MemoryTracker {
+
+    private MemoryTracker parent;
+    private AtomicLong current;
+    private AtomicLong peak;
+    private Map<Device, AtomicLong> devices;
+    private volatile long limit;
+    private volatile boolean enabled;
+
+    /**
+     * Creates a new instance of {@code MemoryTracker}.
+     *
+     * @param parent the tracker of the parent manager, or {@code null} for the root tracker
+     */
+    public MemoryTracker(MemoryTracker parent) {
+        this.parent = parent;
+        current = new AtomicLong();
+        peak = new AtomicLong();
+        devices = new ConcurrentHashMap<>();
+        limit = -1;
+    }
+
+    /**
+     * Records an allocation in this tracker and its ancestors.
+     *
+     * @param device the {@link Device} of the allocated memory
+     * @param bytes the number of bytes allocated
+     * @throws MemoryLimitExceededException if the allocation would exceed the limit of this
+     *     tracker or one of its ancestors
+     */
+    public void allocate(Device device, long bytes) {
+        for (MemoryTracker tracker = this; tracker != null; tracker = tracker.parent) {
+            long max = tracker.limit;
+            if (max >= 0 && tracker.current.get() + bytes > max) {
+                throw new MemoryLimitExceededException(
+                        "Allocating "
+                                + bytes
+                                + " bytes on "
+                                + device
+                                + " exceeds the memory limit: "
+                                + tracker.current.get()
+                                + " of "
+                                + max
+                                + " bytes in use");
+            }
+        }
+        for (MemoryTracker tracker = this; tracker != null; tracker = tracker.parent) {
+            long used = tracker.current.addAndGet(bytes);
+            tracker.peak.accumulateAndGet(used, Math::max);
+            tracker.devices.computeIfAbsent(device, d -> new AtomicLong()).addAndGet(bytes);
+        }
+    }
+
+    /**
+     * Records that memory has been freed in this tracker and its ancestors.
+     *
+     * @param device the {@link Device} of the freed memory
+     * @param bytes the number of bytes freed
+     */
+    public void free(Device device, long bytes) {
+        for (MemoryTracker tracker = this; tracker != null; tracker = tracker.parent) {
+            tracker.current.addAndGet(-bytes);
+            tracker.devices.computeIfAbsent(device, d -> new AtomicLong()).addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * Returns the number of bytes currently in use.
+     *
+     * @return the number of bytes currently in use
+     */
+    public long getCurrentBytes() {
+        return current.get();
+    }
+
+    /**
+     * Returns the number of bytes currently in use on a {@link Device}.
+     *
+     * @param device the {@link Device} to query
+     * @return the number of bytes currently in use on the {@link Device}
+     */
+    public long getCurrentBytes(Device device) {
+        AtomicLong used = devices.get(device);
+        return used == null ? 0 : used.get();
+    }
+
+    /**
+     * Returns the number of bytes currently in use on each {@link Device}.
+     *
+     * @return the number of bytes currently in use on each {@link Device}
+     */
+    public Map<Device, Long> getCurrentBytesByDevice() {
+        Map<Device, Long> ret = new HashMap<>();
+        for (Map.Entry<Device, AtomicLong> entry : devices.entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(ret);
+    }
+
+    /**
+     * Returns the highest number of bytes in use since creation or the last {@link #resetPeak()}.
+     *
+     * @return the highest number of bytes in use
+     */
+    public long getPeakBytes() {
+        return peak.get();
+    }
+
+    /** Resets the peak to the number of bytes currently in use. */
+    public void resetPeak() {
+        peak.set(current.get());
+    }
+
+    /**
+     * Returns whether memory is counted in this tracker.
+     *
+     * @return {@code true} if counting is enabled, or a limit is set, on this tracker or one of its
+     *     ancestors
+     */
+    public boolean isEnabled() {
+        for (MemoryTracker tracker = this; tracker != null; tracker = tracker.parent) {
+            if (tracker.enabled || tracker.limit >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets whether memory is counted in this tracker and its descendants without a limit.
+     *
+     * @param enabled {@code true} to count memory
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the limit of this tracker.
+     *
+     * @return the limit of this tracker in bytes, or -1 if there is no limit
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets the limit of this tracker.
+     *
+     * <p>Setting a limit also enables counting in this tracker and its descendants.
+     *
+     * @param limit the limit in bytes, or -1 to remove the limit
+     */
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Adds the current and peak usage to a {@link Metrics}.
+     *
+     * <p>The "NativeMemory" and "NativeMemoryPeak" metrics hold the totals, and the usage on each
+     * {@link Device} is recorded as "NativeMemory-" followed by the device, for example
+     * "NativeMemory-cpu(0)".
+     *
+     * @param metrics the {@link Metrics} to add to
+     */
+    public void addMetrics(Metrics metrics) {
+        metrics.addMetric("NativeMemory", current.get(), "bytes");
+        metrics.addMetric("NativeMemoryPeak", peak.get(), "bytes");
+        for (Map.Entry<Device, AtomicLong> entry : devices.entrySet()) {
+            metrics.addMetric("NativeMemory-" + entry.getKey(), entry.getValue().get(), "bytes");
+        }
+    }
+}
@@ -18,6 +18,7 @@ import ai.djl.ndarray.internal.NDArrayEx;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.training.GradReq;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
@@ -180,6 +181,18 @@ public interface NDArray extends AutoCloseable {
      */
     void attachGradient();
 
+    /**
+     * Attaches a gradient {@code NDArray} to this {@code NDArray} and marks it so {@link
+     * ai.djl.training.GradientCollector#backward(NDArray)} can compute the gradient with respect to
+     * it.
+     *
+     * <p>With {@link GradReq#ADD}, each backward pass adds to the gradient instead of overwriting
+     * it, so that gradients can be accumulated over several batches.
+     *
+     * @param gradReq how the gradient is written by the backward pass
+     */
+    void attachGradient(GradReq gradReq);
+
     /**
      * Returns the gradient {@code NDArray} attached to this {@code NDArray}.
      *
@@ -218,7 +231,7 @@ public interface NDArray extends AutoCloseable {
             throw new IllegalStateException(
                     "DataType mismatch, Required double" + " Actual " + getDataType());
         }
-        DoubleBuffer db = toByteBuffer().asDoubleBuffer();
+        DoubleBuffer db = asByteBufferView().asDoubleBuffer();
         double[] ret = new double[db.remaining()];
         db.get(ret);
         return ret;
@@ -235,7 +248,7 @@ public interface NDArray extends AutoCloseable {
             throw new IllegalStateException(
                     "DataType mismatch, Required float, Actual " + getDataType());
         }
-        FloatBuffer fb = toByteBuffer().asFloatBuffer();
+        FloatBuffer fb = asByteBufferView().asFloatBuffer();
         float[] ret = new float[fb.remaining()];
         fb.get(ret);
         return ret;
@@ -252,7 +265,7 @@ public interface NDArray extends AutoCloseable {
             throw new IllegalStateException(
                     "DataType mismatch, Required int" + " Actual " + getDataType());
         }
-        IntBuffer ib = toByteBuffer().asIntBuffer();
+        IntBuffer ib = asByteBufferView().asIntBuffer();
         int[] ret = new int[ib.remaining()];
         ib.get(ret);
         return ret;
@@ -269,7 +282,7 @@ public interface NDArray extends AutoCloseable {
             throw new IllegalStateException(
                     "DataType mismatch, Required long" + " Actual " + getDataType());
         }
-        LongBuffer lb = toByteBuffer().asLongBuffer();
+        LongBuffer lb = asByteBufferView().asLongBuffer();
         long[] ret = new long[lb.remaining()];
         lb.get(ret);
         return ret;
@@ -298,7 +311,7 @@ public interface NDArray extends AutoCloseable {
      * @throws IllegalStateException when {@link DataType} of this {@code NDArray} mismatches
      */
     default int[] toUint8Array() {
-        ByteBuffer bb = toByteBuffer();
+        ByteBuffer bb = asByteBufferView();
         int[] buf = new int[bb.remaining()];
         for (int i = 0; i < buf.length; ++i) {
             buf[i] = bb.get() & 0xff;
@@ -317,7 +330,7 @@ public interface NDArray extends AutoCloseable {
             throw new IllegalStateException(
                     "DataType mismatch, Required boolean" + " Actual " + getDataType());
         }
-        ByteBuffer bb = toByteBuffer();
+        ByteBuffer bb = asByteBufferView();
         boolean[] ret = new boolean[bb.remaining()];
         for (int i = 0; i < ret.length; ++i) {
             ret[i] = bb.get() != 0;
@@ -345,7 +358,7 @@ public interface NDArray extends AutoCloseable {
                 return Arrays.stream(toLongArray()).boxed().toArray(Long[]::new);
             case BOOLEAN:
             case INT8:
-                ByteBuffer bb = toByteBuffer();
+                ByteBuffer bb = asByteBufferView();
                 Byte[] ret = new Byte[bb.remaining()];
                 for (int i = 0; i < ret.length; ++i) {
                     ret[i] = bb.get();
@@ -365,6 +378,21 @@ public interface NDArray extends AutoCloseable {
      */
     ByteBuffer toByteBuffer();
 
+    /**
+     * Returns a read-only {@link ByteBuffer} over the data of this {@code NDArray}.
+     *
+     * <p>Engines that can expose the host memory of an {@code NDArray} return a view of it without
+     * copying, which is only valid until this {@code NDArray} is modified or closed. Otherwise, a
+     * read-only copy made by {@link #toByteBuffer()} is returned. Use this method when the data is
+     * consumed right away, and {@link #toByteBuffer()} when the buffer is kept.
+     *
+     * @return a read-only ByteBuffer over the data of this {@code NDArray}
+     */
+    default ByteBuffer asByteBufferView() {
+        ByteBuffer bb = toByteBuffer();
+        return bb.asReadOnlyBuffer().order(bb.order());
+    }
+
     /**
      * Sets this {@code NDArray} value from {@link Buffer}.
      *
@@ -0,0 +1,472 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.ndarray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@code NDExpression} is a chain of elementwise operations over {@link NDArray}s that is evaluated
+ * as a whole.
+ *
+ * <p>Each step of a chain such as {@code x.sub(mean).div(std).mul(scale)} dispatches its own
+ * operator and allocates its own temporary {@link NDArray}. An {@code NDExpression} records the
+ * chain instead, and {@link #eval(NDArray...)} hands it to the {@link NDManager} of the first
+ * input, which can fuse it into a single native call. Engines without fusion evaluate it step by
+ * step and close the temporaries as soon as they are consumed.
+ *
+ * <pre>
+ * NDExpression squaredError = NDExpression.input(0).sub(NDExpression.input(1)).square();
+ * NDArray loss = squaredError.mul(0.5f).eval(label, prediction);
+ * </pre>
+ *
+ * <p>Expressions are immutable. Build them once and evaluate them many times, so that engines can
+ * reuse what they compiled for them.
+ */
+public final class NDExpression {
+
+    private Op op;
+    private int index;
+    private List<NDExpression> operands;
+    private Number scalar;
+    private boolean scalarFirst;
+    private String description;
+
+    private NDExpression(
+            Op op, int index, List<NDExpression> operands, Number scalar, boolean scalarFirst) {
+        this.op = op;
+        this.index = index;
+        this.operands = operands;
+        this.scalar = scalar;
+        this.scalarFirst = scalarFirst;
+    }
+
+    /**
+     * Returns an expression that stands for one of the inputs given to {@link #eval(NDArray...)}.
+     *
+     * @param index the index of the input
+     * @return an expression that stands for the input
+     */
+    public static NDExpression input(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Input index must be non-negative: " + index);
+        }
+        return new NDExpression(Op.INPUT, index, Collections.emptyList(), null, false);
+    }
+
+    /**
+     * Adds another expression to this expression element-wise.
+     *
+     * @param other the expression to add
+     * @return the result expression
+     */
+    public NDExpression add(NDExpression other) {
+        return binary(Op.ADD, other);
+    }
+
+    /**
+     * Adds a number to this expression element-wise.
+     *
+     * @param n the number to add
+     * @return the result expression
+     */
+    public NDExpression add(Number n) {
+        return scalar(Op.ADD, n, false);
+    }
+
+    /**
+     * Subtracts another expression from this expression element-wise.
+     *
+     * @param other the expression to subtract
+     * @return the result expression
+     */
+    public NDExpression sub(NDExpression other) {
+        return binary(Op.SUBTRACT, other);
+    }
+
+    /**
+     * Subtracts a number from this expression element-wise.
+     *
+     * @param n the number to subtract
+     * @return the result expression
+     */
+    public NDExpression sub(Number n) {
+        return scalar(Op.SUBTRACT, n, false);
+    }
+
+    /**
+     * Subtracts this expression from a number element-wise.
+     *
+     * @param n the number to subtract from
+     * @return the result expression
+     */
+    public NDExpression rsub(Number n) {
+        return scalar(Op.SUBTRACT, n, true);
+    }
+
+    /**
+     * Multiplies this expression by another expression element-wise.
+     *
+     * @param other the expression to multiply by
+     * @return the result expression
+     */
+    public NDExpression mul(NDExpression other) {
+        return binary(Op.MULTIPLY, other);
+    }
+
+    /**
+     * Multiplies this expression by a number element-wise.
+     *
+     * @param n the number to multiply by
+     * @return the result expression
+     */
+    public NDExpression mul(Number n) {
+        return scalar(Op.MULTIPLY, n, false);
+    }
+
+    /**
+     * Divides this expression by another expression element-wise.
+     *
+     * @param other the expression to divide by
+     * @return the result expression
+     */
+    public NDExpression div(NDExpression other) {
+        return binary(Op.DIVIDE, other);
+    }
+
+    /**
+     * Divides this expression by a number element-wise.
+     *
+     * @param n the number to divide by
+     * @return the result expression
+     */
+    public NDExpression div(Number n) {
+        return scalar(Op.DIVIDE, n, false);
+    }
+
+    /**
+     * Divides a number by this expression element-wise.
+     *
+     * @param n the number to be divided
+     * @return the result expression
+     */
+    public NDExpression rdiv(Number n) {
+        return scalar(Op.DIVIDE, n, true);
+    }
+
+    /**
+     * Returns the numerical negative of this expression element-wise.
+     *
+     * @return the result expression
+     */
+    public NDExpression neg() {
+        return unary(Op.NEGATIVE);
+    }
+
+    /**
+     * Returns the absolute value of this expression element-wise.
+     *
+     * @return the result expression
+     */
+    public NDExpression abs() {
+        return unary(Op.ABS);
+    }
+
+    /**
+     * Returns the square of this expression element-wise.
+     *
+     * @return the result expression
+     */
+    public NDExpression square() {
+        return unary(Op.SQUARE);
+    }
+
+    /**
+     * Returns the exponential of this expression element-wise.
+     *
+     * @return the result expression
+     */
+    public NDExpression exp() {
+        return unary(Op.EXP);
+    }
+
+    /**
+     * Returns the natural logarithm of this expression element-wise.
+     *
+     * @return the result expression
+     */
+    public NDExpression log() {
+        return unary(Op.LOG);
+    }
+
+    /**
+     * Applies ReLU activation on this expression.
+     *
+     * @return the result expression
+     * @see ai.djl.nn.Activation#relu(NDArray)
+     */
+    public NDExpression relu() {
+        return unary(Op.RELU);
+    }
+
+    /**
+     * Applies Sigmoid activation on this expression.
+     *
+     * @return the result expression
+     * @see ai.djl.nn.Activation#sigmoid(NDArray)
+     */
+    public NDExpression sigmoid() {
+        return unary(Op.SIGMOID);
+    }
+
+    /**
+     * Applies soft ReLU activation on this expression.
+     *
+     * @return the result expression
+     * @see ai.djl.nn.Activation#softrelu(NDArray)
+     */
+    public NDExpression softrelu() {
+        return unary(Op.SOFTRELU);
+    }
+
+    /**
+     * Evaluates this expression.
+     *
+     * <p>The result is attached to the {@link NDManager} of the first input.
+     *
+     * @param inputs the {@link NDArray}s that the {@link #input(int)} expressions stand for
+     * @return the result of the expression
+     */
+    public NDArray eval(NDArray... inputs) {
+        if (inputs.length <= getMaxInputIndex()) {
+            throw new IllegalArgumentException(
+                    "Expected " + (getMaxInputIndex() + 1) + " inputs, got " + inputs.length);
+        }
+        return inputs[0].getManager().evaluate(this, inputs);
+    }
+
+    /**
+     * Evaluates this expression one operation at a time (internal).
+     *
+     * <p>This is the evaluation used by engines that do not fuse expressions.
+     *
+     * @param inputs the {@link NDArray}s that the {@link #input(int)} expressions stand for
+     * @return the result of the expression
+     */
+    public NDArray evalEagerly(NDArray... inputs) {
+        NDArray result = compute(inputs);
+        if (op == Op.INPUT) {
+            // never hand out an input as the result
+            return result.duplicate();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the operation of this expression.
+     *
+     * @return the operation of this expression
+     */
+    public Op getOp() {
+        return op;
+    }
+
+    /**
+     * Returns the input index of an {@link Op#INPUT} expression.
+     *
+     * @return the input index of an {@link Op#INPUT} expression
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the expressions this expression operates on.
+     *
+     * @return the expressions this expression operates on
+     */
+    public List<NDExpression> getOperands() {
+        return operands;
+    }
+
+    /**
+     * Returns the number operand of this expression, if it has one.
+     *
+     * @return the number operand of this expression, or {@code null}
+     */
+    public Number getScalar() {
+        return scalar;
+    }
+
+    /**
+     * Returns whether the number operand comes first, as in {@link #rsub(Number)} and {@link
+     * #rdiv(Number)}.
+     *
+     * @return whether the number operand comes first
+     */
+    public boolean isScalarFirst() {
+        return scalarFirst;
+    }
+
+    /**
+     * Returns the highest input index used by this expression.
+     *
+     * @return the highest input index used by this expression
+     */
+    public int getMaxInputIndex() {
+        if (op == Op.INPUT) {
+            return index;
+        }
+        int max = -1;
+        for (NDExpression operand : operands) {
+            max = Math.max(max, operand.getMaxInputIndex());
+        }
+        return max;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Two expressions with the same description compute the same function of their inputs, so
+     * the description can be used to cache what is compiled for an expression.
+     */
+    @Override
+    public String toString() {
+        if (description == null) {
+            StringBuilder sb = new StringBuilder();
+            describe(sb);
+            description = sb.toString();
+        }
+        return description;
+    }
+
+    private void describe(StringBuilder sb) {
+        if (op == Op.INPUT) {
+            sb.append('x').append(index);
+            return;
+        }
+        sb.append(op.name().toLowerCase(Locale.ROOT)).append('(');
+        if (scalar != null && scalarFirst) {
+            sb.append(scalar).append(", ");
+        }
+        for (int i = 0; i < operands.size(); ++i) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            operands.get(i).describe(sb);
+        }
+        if (scalar != null && !scalarFirst) {
+            sb.append(", ").append(scalar);
+        }
+        sb.append(')');
+    }
+
+    private NDArray compute(NDArray[] inputs) {
+        if (op == Op.INPUT) {
+            return inputs[index];
+        }
+        List<NDArray> values = new ArrayList<>(operands.size());
+        for (NDExpression operand : operands) {
+            values.add(operand.compute(inputs));
+        }
+        NDArray a = values.get(0);
+        NDArray result;
+        switch (op) {
+            case ADD:
+                result = scalar == null ? a.add(values.get(1)) : a.add(scalar);
+                break;
+            case SUBTRACT:
+                if (scalar == null) {
+                    result = a.sub(values.get(1));
+                } else {
+                    result = scalarFirst ? a.getNDArrayInternal().rsub(scalar) : a.sub(scalar);
+                }
+                break;
+            case MULTIPLY:
+                result = scalar == null ? a.mul(values.get(1)) : a.mul(scalar);
+                break;
+            case DIVIDE:
+                if (scalar == null) {
+                    result = a.div(values.get(1));
+                } else {
+                    result = scalarFirst ? a.getNDArrayInternal().rdiv(scalar) : a.div(scalar);
+                }
+                break;
+            case NEGATIVE:
+                result = a.neg();
+                break;
+            case ABS:
+                result = a.abs();
+                break;
+            case SQUARE:
+                result = a.square();
+                break;
+            case EXP:
+                result = a.exp();
+                break;
+            case LOG:
+                result = a.log();
+                break;
+            case RELU:
+                result = a.getNDArrayInternal().relu();
+                break;
+            case SIGMOID:
+                result = a.getNDArrayInternal().sigmoid();
+                break;
+            case SOFTRELU:
+                result = a.getNDArrayInternal().softrelu();
+                break;
+            default:
+                throw new AssertionError("Unexpected operation: " + op);
+        }
+        for (int i = 0; i < operands.size(); ++i) {
+            if (operands.get(i).op != Op.INPUT) {
+                // temporaries of this expression, nobody else holds them
+                values.get(i).close();
+            }
+        }
+        return result;
+    }
+
+    private NDExpression unary(Op unaryOp) {
+        return new NDExpression(unaryOp, -1, Collections.singletonList(this), null, false);
+    }
+
+    private NDExpression binary(Op binaryOp, NDExpression other) {
+        return new NDExpression(binaryOp, -1, Arrays.asList(this, other), null, false);
+    }
+
+    private NDExpression scalar(Op binaryOp, Number n, boolean first) {
+        return new NDExpression(binaryOp, -1, Collections.singletonList(this), n, first);
+    }
+
+    /** The operations of an {@code NDExpression}. */
+    public enum Op {
+        INPUT,
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+        DIVIDE,
+        NEGATIVE,
+        ABS,
+        SQUARE,
+        EXP,
+        LOG,
+        RELU,
+        SIGMOID,
+        SOFTRELU
+    }
+}
@@ -128,11 +128,24 @@ public interface NDManager extends AutoCloseable {
     /**
      * Allocates a new engine specific direct byte buffer.
      *
+     * <p>The buffer may come from a pool, in which case it belongs to this {@code NDManager} and
+     * must not be used after the {@code NDManager} is closed.
+     *
      * @param capacity the new buffer's capacity, in bytes
      * @return the new byte buffer
      */
     ByteBuffer allocateDirect(int capacity);
 
+    /**
+     * Gives a buffer from {@link #allocateDirect(int)} back before this {@code NDManager} is
+     * closed, so that it can be reused.
+     *
+     * <p>The buffer must not be used after it is released.
+     *
+     * @param buffer the buffer to release
+     */
+    default void releaseDirect(ByteBuffer buffer) {}
+
     /**
      * Creates an uninitialized instance of {@link DataType#FLOAT32} {@link NDArray} with specified
      * {@link Shape}.
@@ -888,6 +901,32 @@ public interface NDManager extends AutoCloseable {
      */
     Device getDevice();
 
+    /**
+     * Evaluates an {@link NDExpression}, and attaches the result to this {@code NDManager}.
+     *
+     * <p>Engines can override this method to fuse the expression into a single native call. By
+     * default, the expression is evaluated one operation at a time.
+     *
+     * @param expression the expression to evaluate
+     * @param inputs the {@link NDArray}s that the inputs of the expression stand for
+     * @return the result of the expression
+     * @see NDExpression#eval(NDArray...)
+     */
+    default NDArray evaluate(NDExpression expression, NDArray... inputs) {
+        return expression.evalEagerly(inputs);
+    }
+
+    /**
+     * Returns the {@link MemoryTracker} that accounts for the native memory held by the {@link
+     * NDArray}s of this {@code NDManager} and its sub-managers.
+     *
+     * @return the {@link MemoryTracker} of this {@code NDManager}, or {@code null} if the engine
+     *     does not track memory
+     */
+    default MemoryTracker getMemoryTracker() {
+        return null;
+    }
+
     /**
      * Attaches a {@link NDArray} or {@code NDManager} to this {@code NDManager}.
      *
@@ -233,6 +233,15 @@ public interface NDArrayEx {
             float momentum,
             boolean lazyUpdate);
 
+    void multiSgdUpdate(
+            NDList inputs,
+            NDList weights,
+            float[] learningRates,
+            float[] weightDecays,
+            float rescaleGrad,
+            float clipGrad,
+            float momentum);
+
     ////////////////////////////////////////
     // Neural network
     ////////////////////////////////////////
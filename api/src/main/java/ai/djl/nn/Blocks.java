@@ -13,10 +13,13 @@
 package ai.djl.nn;
 
 import ai.djl.ndarray.NDList;
+import java.util.function.Function;
 
 /** Utility class that provides some useful blocks. */
 public final class Blocks {
 
+    static final Function<NDList, NDList> IDENTITY = x -> x;
+
     private Blocks() {}
 
     private static NDList batchFlatten(NDList arrays) {
@@ -81,6 +84,6 @@ public final class Blocks {
      * @return an identity {@link Block}
      */
     public static Block identityBlock() {
-        return new LambdaBlock(x -> x);
+        return new LambdaBlock(IDENTITY);
     }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.nn;
+
+import ai.djl.MalformedModelException;
+import ai.djl.engine.Engine;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.training.ParameterStore;
+import ai.djl.training.initializer.Initializer;
+import ai.djl.util.PairList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@code HybridBlock} runs the forward pass of another {@link Block} as a single graph compiled by
+ * the engine, instead of one native call per operator.
+ *
+ * <p>The first forward pass for a combination of input shapes, data types and training mode runs
+ * the wrapped block imperatively while the engine records the operators it calls. The recorded
+ * operators are compiled into a graph, which the following forward passes with the same inputs
+ * execute with a single native call, both for inference and training. Engines without graph
+ * support, and blocks whose operators cannot be recorded, keep running imperatively.
+ *
+ * <p>Only the shapes of the inputs are taken into account, so the forward pass of the wrapped block
+ * must not depend on the values of the inputs, for example through {@link
+ * ai.djl.ndarray.NDArray#toArray()}.
+ *
+ * <p>{@code HybridBlock} is transparent otherwise: it has the parameters and children of the
+ * wrapped block, and saves its parameters in the same format.
+ *
+ * <pre>
+ * model.setBlock(new HybridBlock(ResNetV1.builder().setImageShape(shape).build()));
+ * </pre>
+ */
+public class HybridBlock implements Block {
+
+    private Block block;
+    private HybridGraph graph;
+    private boolean graphCreated;
+
+    /**
+     * Creates a {@code HybridBlock} that runs the given block as a compiled graph.
+     *
+     * @param block the block to run
+     */
+    public HybridBlock(Block block) {
+        this.block = block;
+    }
+
+    /**
+     * Returns the wrapped block.
+     *
+     * @return the wrapped block
+     */
+    public Block getBlock() {
+        return block;
+    }
+
+    /**
+     * Returns the number of graphs compiled for the wrapped block.
+     *
+     * <p>It stays 0 when the engine has no graph support, or when the operators of the block
+     * cannot be recorded, in which case the block runs imperatively.
+     *
+     * @return the number of graphs compiled for the wrapped block
+     */
+    public int getCompiledGraphCount() {
+        HybridGraph hybridGraph = getGraph();
+        return hybridGraph == null ? 0 : hybridGraph.getGraphCount();
+    }
+
+    /**
+     * Replaces the wrapped block, and releases the graphs compiled for the previous one.
+     *
+     * @param block the new block to run
+     */
+    void setBlock(Block block) {
+        closeGraph();
+        this.block = block;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NDList forward(
+            ParameterStore parameterStore, NDList inputs, PairList<String, Object> params) {
+        HybridGraph hybridGraph = getGraph();
+        if (hybridGraph == null) {
+            return block.forward(parameterStore, inputs, params);
+        }
+        return hybridGraph.forward(parameterStore, inputs, params);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInitializer(Initializer initializer) {
+        block.setInitializer(initializer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInitializer(Initializer initializer, String paramName) {
+        block.setInitializer(initializer, paramName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Shape[] initialize(NDManager manager, DataType dataType, Shape... inputShapes) {
+        return block.initialize(manager, dataType, inputShapes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isInitialized() {
+        return block.isInitialized();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cast(DataType dataType) {
+        block.cast(dataType);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        closeGraph();
+        block.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PairList<String, Shape> describeInput() {
+        return block.describeInput();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BlockList getChildren() {
+        return block.getChildren();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Parameter> getDirectParameters() {
+        return block.getDirectParameters();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ParameterList getParameters() {
+        return block.getParameters();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Shape getParameterShape(String name, Shape[] inputShapes) {
+        return block.getParameterShape(name, inputShapes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Shape[] getOutputShapes(NDManager manager, Shape[] inputShapes) {
+        return block.getOutputShapes(manager, inputShapes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveParameters(DataOutputStream os) throws IOException {
+        block.saveParameters(os);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void loadParameters(NDManager manager, DataInputStream is)
+            throws IOException, MalformedModelException {
+        // the compiled graphs are bound to the parameters, not to their values
+        block.loadParameters(manager, is);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "Hybrid(" + block + ')';
+    }
+
+    private synchronized HybridGraph getGraph() {
+        if (!graphCreated) {
+            graph = Engine.getInstance().newHybridGraph(block);
+            graphCreated = true;
+        }
+        return graph;
+    }
+
+    private synchronized void closeGraph() {
+        if (graph != null) {
+            graph.close();
+            graph = null;
+        }
+        graphCreated = false;
+    }
+}
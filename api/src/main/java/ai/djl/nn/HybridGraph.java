@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.nn;
+
+import ai.djl.ndarray.NDList;
+import ai.djl.training.ParameterStore;
+import ai.djl.util.PairList;
+
+/**
+ * A {@code HybridGraph} runs the forward pass of a {@link Block} as a graph compiled by the engine.
+ *
+ * <p>It is created by {@link ai.djl.engine.Engine#newHybridGraph(Block)} and used by {@link
+ * HybridBlock}.
+ */
+public interface HybridGraph extends AutoCloseable {
+
+    /**
+     * Applies the forward pass of the block.
+     *
+     * @param parameterStore the parameter store
+     * @param inputs the input NDList
+     * @param params optional parameters
+     * @return the output of the forward pass
+     */
+    NDList forward(ParameterStore parameterStore, NDList inputs, PairList<String, Object> params);
+
+    /**
+     * Returns the number of graphs compiled so far, one for each combination of inputs.
+     *
+     * @return the number of graphs compiled so far
+     */
+    int getGraphCount();
+
+    /** Releases the compiled graphs. */
+    @Override
+    void close();
+}
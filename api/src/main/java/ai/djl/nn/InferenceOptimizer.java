@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.nn;
+
+import ai.djl.ndarray.NDList;
+import ai.djl.nn.convolutional.Convolution;
+import ai.djl.nn.core.Linear;
+import ai.djl.nn.norm.BatchNorm;
+import ai.djl.nn.norm.Dropout;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code InferenceOptimizer} rewrites a {@link Block} tree into an equivalent, faster one for
+ * inference.
+ *
+ * <p>The following rewrites are applied:
+ *
+ * <ul>
+ *   <li>A {@link BatchNorm} that directly follows a {@link Convolution} or a {@link Linear} in a
+ *       {@link SequentialBlock} is folded into the weight and bias of that layer, using the
+ *       running mean and variance.
+ *   <li>{@link Dropout} blocks, which do nothing at inference time, and identity blocks are
+ *       removed.
+ *   <li>{@link SymbolBlock}s rewrite their graph with {@link SymbolBlock#optimizeForInference()}.
+ * </ul>
+ *
+ * <p>The block is modified in place, and must not be trained afterwards. Predictors created
+ * before the optimization must not be used anymore, since the folded parameters have new values.
+ *
+ * <p>The optimized block saves its parameters in its own format. To load them, build the same
+ * architecture, optimize it before its parameters are initialized, which only changes the
+ * structure, and then load the parameters:
+ *
+ * <pre>
+ * Block block = InferenceOptimizer.optimize(ResNetV1.builder().setImageShape(shape).build());
+ * model.setBlock(block);
+ * model.load(modelDir, "resnet-optimized");
+ * </pre>
+ */
+public final class InferenceOptimizer {
+
+    private InferenceOptimizer() {}
+
+    /**
+     * Optimizes a {@link Block} tree for inference.
+     *
+     * @param block the block to optimize
+     * @return the optimized block, which is {@code block} itself unless the block is removed as a
+     *     whole, like a {@link Dropout}
+     */
+    public static Block optimize(Block block) {
+        if (block instanceof HybridBlock) {
+            HybridBlock hybrid = (HybridBlock) block;
+            hybrid.setBlock(optimize(hybrid.getBlock()));
+        } else if (block instanceof SequentialBlock) {
+            SequentialBlock sequential = (SequentialBlock) block;
+            sequential.setBlocks(optimize(sequential.getBlocks()));
+        } else if (block instanceof ParallelBlock) {
+            ParallelBlock parallel = (ParallelBlock) block;
+            List<Block> blocks = new ArrayList<>(parallel.getBlocks().size());
+            for (Block child : parallel.getBlocks()) {
+                blocks.add(optimize(child));
+            }
+            parallel.setBlocks(blocks);
+        } else if (block instanceof Dropout) {
+            return Blocks.identityBlock();
+        } else if (block instanceof SymbolBlock) {
+            ((SymbolBlock) block).optimizeForInference();
+        }
+        return block;
+    }
+
+    private static List<Block> optimize(List<Block> blocks) {
+        List<Block> optimized = new ArrayList<>(blocks.size());
+        for (Block child : blocks) {
+            Block block = optimize(child);
+            if (isIdentity(block)) {
+                continue;
+            }
+            if (block instanceof BatchNorm && !optimized.isEmpty()) {
+                Block previous = optimized.get(optimized.size() - 1);
+                if (fold(previous, (BatchNorm) block)) {
+                    continue;
+                }
+            }
+            optimized.add(block);
+        }
+        if (optimized.isEmpty() && !blocks.isEmpty()) {
+            // a SequentialBlock must not be empty
+            optimized.add(Blocks.identityBlock());
+        }
+        return optimized;
+    }
+
+    private static boolean fold(Block previous, BatchNorm batchNorm) {
+        // both layers put the output channels on axis 1
+        if (batchNorm.getAxis() != 1
+                || !(previous instanceof Convolution || previous instanceof Linear)) {
+            return false;
+        }
+        boolean initialized = batchNorm.isInitialized();
+        if (initialized != previous.isInitialized()) {
+            return false;
+        }
+        NDList scaleAndShift = initialized ? batchNorm.getScaleAndShift() : null;
+        if (previous instanceof Convolution) {
+            Convolution convolution = (Convolution) previous;
+            if (scaleAndShift == null) {
+                convolution.foldScaleAndShift(null, null);
+            } else {
+                convolution.foldScaleAndShift(scaleAndShift.get(0), scaleAndShift.get(1));
+            }
+        } else {
+            Linear linear = (Linear) previous;
+            if (scaleAndShift == null) {
+                linear.foldScaleAndShift(null, null);
+            } else {
+                linear.foldScaleAndShift(scaleAndShift.get(0), scaleAndShift.get(1));
+            }
+        }
+        if (scaleAndShift != null) {
+            scaleAndShift.close();
+            batchNorm.clear();
+        }
+        return true;
+    }
+
+    private static boolean isIdentity(Block block) {
+        return block instanceof LambdaBlock && ((LambdaBlock) block).isIdentity();
+    }
+}
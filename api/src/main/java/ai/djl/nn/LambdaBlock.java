@@ -47,6 +47,15 @@ public class LambdaBlock extends ParameterBlock {
         this.lambda = lambda;
     }
 
+    /**
+     * Returns whether this block was created by {@link Blocks#identityBlock()}.
+     *
+     * @return whether this block is an identity block
+     */
+    boolean isIdentity() {
+        return lambda == Blocks.IDENTITY;
+    }
+
     /** {@inheritDoc} */
     @Override
     public NDList forward(
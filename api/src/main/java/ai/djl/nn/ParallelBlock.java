@@ -112,6 +112,24 @@ public class ParallelBlock extends AbstractBlock {
         return this;
     }
 
+    /**
+     * Returns the blocks of this block, in order.
+     *
+     * @return the blocks of this block
+     */
+    List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Replaces the blocks of this block.
+     *
+     * @param blocks the new blocks
+     */
+    void setBlocks(List<Block> blocks) {
+        this.blocks = blocks;
+    }
+
     /** {@inheritDoc} */
     @Override
     public NDList forward(
@@ -215,7 +215,7 @@ public class Parameter implements AutoCloseable {
         Shape shape = array.getShape();
         dos.write(shape.getEncoded());
 
-        ByteBuffer bb = array.toByteBuffer();
+        ByteBuffer bb = array.asByteBufferView();
         int length = bb.remaining();
         dos.writeInt(length);
 
@@ -296,6 +296,7 @@ public class Parameter implements AutoCloseable {
         }
 
         array = manager.create(dataType.asDataType(data), shape);
+        manager.releaseDirect(data);
     }
 
     /** {@inheritDoc} */
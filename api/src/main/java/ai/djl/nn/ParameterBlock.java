@@ -12,10 +12,12 @@
  */
 package ai.djl.nn;
 
+import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.util.PairList;
+import java.util.Arrays;
 
 /**
  * {@code ParameterBlock} is an abstract implementation of {@link Block}. It is recommended that all
@@ -39,6 +41,39 @@ public abstract class ParameterBlock extends AbstractBlock {
         return new BlockList();
     }
 
+    /**
+     * Applies a per-channel affine transform to the output of a block by changing its weight and
+     * bias, so that the block computes \(y * scale + shift\) instead of \(y\).
+     *
+     * <p>The output channels are on the first axis of the weight. The previous weight and bias
+     * arrays are closed.
+     *
+     * @param weight the weight parameter, whose first axis is the output channels
+     * @param bias the bias parameter, which is used as zero if it is not initialized
+     * @param scale the scale of each output channel
+     * @param shift the shift of each output channel
+     */
+    protected static void foldScaleAndShift(
+            Parameter weight, Parameter bias, NDArray scale, NDArray shift) {
+        NDArray oldWeight = weight.getArray();
+        NDManager manager = oldWeight.getManager();
+        long[] dims = new long[oldWeight.getShape().dimension()];
+        Arrays.fill(dims, 1);
+        dims[0] = scale.size();
+        weight.setArray(oldWeight.mul(scale.reshape(new Shape(dims))));
+        oldWeight.close();
+
+        if (bias.isInitialized()) {
+            NDArray oldBias = bias.getArray();
+            bias.setArray(oldBias.mul(scale).addi(shift));
+            oldBias.close();
+        } else {
+            NDArray newBias = shift.duplicate();
+            newBias.attach(manager);
+            bias.setArray(newBias);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
@@ -101,6 +101,24 @@ public class SequentialBlock extends AbstractBlock {
         blocks.add(block);
     }
 
+    /**
+     * Returns the blocks of this block, in order.
+     *
+     * @return the blocks of this block
+     */
+    List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Replaces the blocks of this block.
+     *
+     * @param blocks the new blocks
+     */
+    void setBlocks(List<Block> blocks) {
+        this.blocks = blocks;
+    }
+
     /** {@inheritDoc} */
     @Override
     public NDList forward(
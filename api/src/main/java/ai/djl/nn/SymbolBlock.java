@@ -20,4 +20,14 @@ public interface SymbolBlock extends Block {
 
     /** Removes the last block in the symbolic graph. */
     void removeLastBlock();
+
+    /**
+     * Rewrites the symbolic graph for inference, by folding batch normalization into the
+     * preceding layer and removing dropout and identity operators.
+     *
+     * <p>The default implementation does nothing, for engines that cannot rewrite their graphs.
+     *
+     * @see InferenceOptimizer
+     */
+    default void optimizeForInference() {}
 }
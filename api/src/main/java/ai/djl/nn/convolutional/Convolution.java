@@ -164,6 +164,28 @@ public abstract class Convolution extends ParameterBlock {
         return parameters;
     }
 
+    /**
+     * Folds a per-channel affine transform of the output into the weight and bias of this
+     * convolution, so that it computes \(y * scale + shift\) instead of \(y\).
+     *
+     * <p>A bias is added if the convolution has none. When the parameters are not initialized,
+     * {@code scale} and {@code shift} are {@code null} and only the bias is added, so that the
+     * parameters of a folded convolution can be loaded.
+     *
+     * @param scale the scale of each output channel, or {@code null}
+     * @param shift the shift of each output channel, or {@code null}
+     * @see ai.djl.nn.norm.BatchNorm#getScaleAndShift()
+     */
+    public void foldScaleAndShift(NDArray scale, NDArray shift) {
+        if (bias == null) {
+            includeBias = true;
+            bias = new Parameter("bias", this, ParameterType.BIAS);
+        }
+        if (scale != null) {
+            foldScaleAndShift(weight, bias, scale, shift);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void saveParameters(DataOutputStream os) throws IOException {
@@ -14,6 +14,7 @@ package ai.djl.nn.core;
 
 import ai.djl.Device;
 import ai.djl.MalformedModelException;
+import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.internal.NDArrayEx;
@@ -137,6 +138,27 @@ public class Linear extends ParameterBlock {
         }
     }
 
+    /**
+     * Folds a per-channel affine transform of the output into the weight and bias of this linear
+     * block, so that it computes \(y * scale + shift\) instead of \(y\).
+     *
+     * <p>A bias is added if the linear block has none. When the parameters are not initialized,
+     * {@code scale} and {@code shift} are {@code null} and only the bias is added, so that the
+     * parameters of a folded linear block can be loaded.
+     *
+     * @param scale the scale of each output channel, or {@code null}
+     * @param shift the shift of each output channel, or {@code null}
+     * @see ai.djl.nn.norm.BatchNorm#getScaleAndShift()
+     */
+    public void foldScaleAndShift(NDArray scale, NDArray shift) {
+        if (bias == null) {
+            bias = new Parameter("bias", this, ParameterType.BIAS);
+        }
+        if (scale != null) {
+            foldScaleAndShift(weight, bias, scale, shift);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void saveParameters(DataOutputStream os) throws IOException {
@@ -108,6 +108,56 @@ public class BatchNorm extends ParameterBlock {
         }
     }
 
+    /**
+     * Returns the axis of the channels.
+     *
+     * @return the axis of the channels
+     */
+    public int getAxis() {
+        return axis;
+    }
+
+    /**
+     * Returns the number of channels.
+     *
+     * @return the number of channels
+     */
+    public long getNumChannels() {
+        return inChannels;
+    }
+
+    /**
+     * Returns the per-channel affine transform that this block applies at inference time.
+     *
+     * <p>With the running mean and variance, batch normalization computes \(x * scale + shift\)
+     * along the channel axis. The transform is measured by running this block on inputs of zeros
+     * and ones, so that it matches the engine, including how the engine treats gamma. This must
+     * not be called while training.
+     *
+     * @return an {@link NDList} of the scale and the shift, both of shape (channels), attached to
+     *     the manager of the parameters
+     */
+    public NDList getScaleAndShift() {
+        NDArray mean = runningMean.getArray();
+        NDManager manager = mean.getManager();
+        long[] dims = new long[axis + 1];
+        Arrays.fill(dims, 1);
+        dims[axis] = inChannels;
+        Shape shape = new Shape(dims);
+        try (NDManager subManager = manager.newSubManager()) {
+            ParameterStore parameterStore = new ParameterStore(subManager, false);
+            NDArray zeros = subManager.zeros(shape, mean.getDataType(), mean.getDevice());
+            NDArray ones = subManager.ones(shape, mean.getDataType(), mean.getDevice());
+            NDArray shift = forward(parameterStore, new NDList(zeros)).singletonOrThrow();
+            NDArray scale = forward(parameterStore, new NDList(ones)).singletonOrThrow().sub(shift);
+            shift = shift.reshape(inChannels);
+            scale = scale.reshape(inChannels);
+            shift.attach(manager);
+            scale.attach(manager);
+            return new NDList(scale, shift);
+        }
+    }
+
     private NDList opInputs(ParameterStore parameterStore, NDList inputs) {
         if (inputs.size() != 1) {
             throw new IllegalArgumentException("Linear requires exactly 1 NDArray");
@@ -35,6 +35,9 @@ public class DefaultTrainingConfig implements TrainingConfig {
     private List<Evaluator> evaluators;
     private List<TrainingListener> listeners;
     private int batchSize;
+    private boolean threadPerDevice;
+    private String parameterServerType;
+    private int gradientAccumulation = 1;
 
     /**
      * Creates an instance of {@code DefaultTrainingConfig} with the given {@link Initializer}.
@@ -117,6 +120,44 @@ public class DefaultTrainingConfig implements TrainingConfig {
         return this;
     }
 
+    /**
+     * Sets whether to run the forward and backward pass of each device on its own thread (default
+     * {@code false}).
+     *
+     * @param threadPerDevice {@code true} to use a thread per device
+     * @return this {@code DefaultTrainingConfig}
+     * @see TrainingConfig#isThreadPerDevice()
+     */
+    public DefaultTrainingConfig optThreadPerDevice(boolean threadPerDevice) {
+        this.threadPerDevice = threadPerDevice;
+        return this;
+    }
+
+    /**
+     * Sets the type of the engine's native parameter server used to aggregate the gradients
+     * (default {@code null}, a {@link LocalParameterServer}).
+     *
+     * @param parameterServerType the type of the native parameter server
+     * @return this {@code DefaultTrainingConfig}
+     * @see TrainingConfig#getParameterServerType()
+     */
+    public DefaultTrainingConfig optParameterServerType(String parameterServerType) {
+        this.parameterServerType = parameterServerType;
+        return this;
+    }
+
+    /**
+     * Sets the number of batches to accumulate the gradients over before each update (default 1).
+     *
+     * @param gradientAccumulation the number of batches to accumulate the gradients over
+     * @return this {@code DefaultTrainingConfig}
+     * @see TrainingConfig#getGradientAccumulation()
+     */
+    public DefaultTrainingConfig optGradientAccumulation(int gradientAccumulation) {
+        this.gradientAccumulation = gradientAccumulation;
+        return this;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Device[] getDevices() {
@@ -161,4 +202,22 @@ public class DefaultTrainingConfig implements TrainingConfig {
     public int getBatchSize() {
         return batchSize;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isThreadPerDevice() {
+        return threadPerDevice;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getParameterServerType() {
+        return parameterServerType;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getGradientAccumulation() {
+        return gradientAccumulation;
+    }
 }
@@ -15,7 +15,9 @@ package ai.djl.training;
 import ai.djl.Device;
 import ai.djl.ndarray.NDArray;
 import ai.djl.training.optimizer.Optimizer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -51,25 +53,56 @@ public class LocalParameterServer implements ParameterServer {
     /** {@inheritDoc} */
     @Override
     public void pull(String parameterId, NDArray[] weights, int priority) {
-        NDArray[] grads = gradMap.get(parameterId);
-        Device firstDevice = grads[0].getDevice();
-        // reduce gradient from all devices to first device
-        for (int i = 1; i < grads.length; i++) {
-            try (NDArray gradCopy = grads[i].toDevice(firstDevice, true)) {
-                grads[0].addi(gradCopy);
+        pull(new String[] {parameterId}, new NDArray[][] {weights}, priority);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The gradients of each key are reduced first, then all the weights are passed to {@link
+     * Optimizer#updateAll(String[], NDArray[], NDArray[])} at once.
+     */
+    @Override
+    public void pull(String[] parameterIds, NDArray[][] weights, int priority) {
+        List<String> ids = new ArrayList<>();
+        List<NDArray> toUpdate = new ArrayList<>();
+        List<NDArray> updateGrads = new ArrayList<>();
+        List<NDArray> copies = new ArrayList<>();
+        List<NDArray[]> reduced = new ArrayList<>(parameterIds.length);
+        for (int i = 0; i < parameterIds.length; ++i) {
+            NDArray[] grads = gradMap.get(parameterIds[i]);
+            reduced.add(grads);
+            Device firstDevice = grads[0].getDevice();
+            // reduce gradient from all devices to first device
+            for (int j = 1; j < grads.length; j++) {
+                try (NDArray gradCopy = grads[j].toDevice(firstDevice, true)) {
+                    grads[0].addi(gradCopy);
+                }
             }
-        }
-        // update weights on different devices with reduced gradient
-        for (NDArray weight : weights) {
-            if (weight.getDevice().equals(firstDevice)) {
-                optimizer.update(parameterId, weight, grads[0]);
-            } else {
-                try (NDArray gradSumCopy = grads[0].toDevice(weight.getDevice(), true)) {
-                    optimizer.update(parameterId, weight, gradSumCopy);
+            // update weights on different devices with reduced gradient
+            for (NDArray weight : weights[i]) {
+                ids.add(parameterIds[i]);
+                toUpdate.add(weight);
+                if (weight.getDevice().equals(firstDevice)) {
+                    updateGrads.add(grads[0]);
+                } else {
+                    NDArray gradSumCopy = grads[0].toDevice(weight.getDevice(), true);
+                    copies.add(gradSumCopy);
+                    updateGrads.add(gradSumCopy);
                 }
             }
         }
-        Arrays.stream(grads).forEach(NDArray::close);
+        try {
+            optimizer.updateAll(
+                    ids.toArray(new String[0]),
+                    toUpdate.toArray(new NDArray[0]),
+                    updateGrads.toArray(new NDArray[0]));
+        } finally {
+            copies.forEach(NDArray::close);
+            for (NDArray[] grads : reduced) {
+                Arrays.stream(grads).forEach(NDArray::close);
+            }
+        }
     }
 
     /** {@inheritDoc} */
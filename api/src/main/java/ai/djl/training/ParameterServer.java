@@ -48,6 +48,40 @@ public interface ParameterServer extends AutoCloseable {
      */
     void pull(String parameterId, NDArray[] weights, int priority);
 
+    /**
+     * Updates values of several keys in Parameter Server at once.
+     *
+     * <p>The keys are sorted by descending priority: the first key is pushed with {@code
+     * priority}, and each following key with a priority one lower than the key before it.
+     *
+     * @param parameterIds the keys to update
+     * @param grads the values corresponding to each key, values in each array will be summed when
+     *     the key is updated
+     * @param priority the priority of the first key
+     */
+    default void push(String[] parameterIds, NDArray[][] grads, int priority) {
+        for (int i = 0; i < parameterIds.length; ++i) {
+            push(parameterIds[i], grads[i], priority - i);
+        }
+    }
+
+    /**
+     * Pulls the values of several keys from Parameter Server at once.
+     *
+     * <p>The keys are sorted by descending priority: the first key is pulled with {@code
+     * priority}, and each following key with a priority one lower than the key before it.
+     *
+     * @param parameterIds the keys to pull
+     * @param weights the NDArrays to store the value corresponding to each key, values will be
+     *     copied to the devices of the NDArrays
+     * @param priority the priority of the first key
+     */
+    default void pull(String[] parameterIds, NDArray[][] weights, int priority) {
+        for (int i = 0; i < parameterIds.length; ++i) {
+            pull(parameterIds[i], weights[i], priority - i);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     void close();
@@ -16,8 +16,10 @@ package ai.djl.training;
 import ai.djl.Device;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.index.NDIndex;
 import ai.djl.nn.Parameter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,7 @@ public class ParameterStore {
     private Map<Device, Integer> deviceMap;
     private boolean copy;
     private ParameterServer parameterServer;
+    private GradReq gradReq = GradReq.WRITE;
 
     /**
      * Constructs an empty {@code ParameterStore}.
@@ -64,33 +67,78 @@ public class ParameterStore {
         }
     }
 
+    /**
+     * Sets how the backward pass writes the gradients of the mirrored parameters.
+     *
+     * <p>It must be set before the mirrors are created. With {@link GradReq#ADD}, gradients are
+     * accumulated until {@link #zeroGradients()} is called.
+     *
+     * @param gradReq how the gradients are written by the backward pass
+     */
+    public void setGradReq(GradReq gradReq) {
+        this.gradReq = gradReq;
+    }
+
+    /** Resets the gradients of all the mirrored parameters to zero. */
+    public void zeroGradients() {
+        for (ParameterData data : parameterMap.values()) {
+            if (data.requireGradient()) {
+                for (NDArray array : data.toArray()) {
+                    try (NDArray grad = array.getGradient()) {
+                        grad.set(new NDIndex(), 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores {@link GradReq#WRITE} on the model parameters that are used as mirrors directly.
+     *
+     * <p>It must be called once training is done when another {@link GradReq} was set, so the model
+     * is not left accumulating gradients.
+     */
+    public void restoreGradReq() {
+        if (gradReq == GradReq.WRITE) {
+            return;
+        }
+        for (ParameterData data : parameterMap.values()) {
+            if (data.requireGradient()) {
+                NDArray array = data.parameter.getArray();
+                for (NDArray mirror : data.toArray()) {
+                    if (mirror == array) {
+                        array.attachGradient(GradReq.WRITE);
+                    }
+                }
+            }
+        }
+    }
+
     /** Updates all the mirrored parameters. */
     public void updateAllParameters() {
-        int priority = 0;
+        List<String> parameterIds = new ArrayList<>(parameterMap.size());
+        List<NDArray[]> grads = new ArrayList<>(parameterMap.size());
+        List<NDArray[]> values = new ArrayList<>(parameterMap.size());
         for (Map.Entry<String, ParameterData> entry : parameterMap.entrySet()) {
-            String parameterId = entry.getKey();
             ParameterData data = entry.getValue();
             if (data.requireGradient()) {
-                NDArray[] grads =
+                parameterIds.add(entry.getKey());
+                grads.add(
                         data.getNDArrays()
                                 .stream()
                                 .map(NDArray::getGradient)
-                                .toArray(NDArray[]::new);
-                parameterServer.push(parameterId, grads, -priority);
-                ++priority;
+                                .toArray(NDArray[]::new));
+                values.add(data.toArray());
             }
         }
-
-        priority = 0;
-        for (Map.Entry<String, ParameterData> entry : parameterMap.entrySet()) {
-            String parameterId = entry.getKey();
-            ParameterData data = entry.getValue();
-            if (data.requireGradient()) {
-                NDArray[] values = data.toArray();
-                parameterServer.pull(parameterId, values, -priority);
-                ++priority;
-            }
+        if (parameterIds.isEmpty()) {
+            return;
         }
+
+        // push and pull all keys in one batch, earlier keys get higher priority
+        String[] keys = parameterIds.toArray(new String[0]);
+        parameterServer.push(keys, grads.toArray(new NDArray[0][]), 0);
+        parameterServer.pull(keys, values.toArray(new NDArray[0][]), 0);
     }
 
     /**
@@ -107,31 +155,41 @@ public class ParameterStore {
                 parameterMap.computeIfAbsent(parameterId, k -> new ParameterData(parameter));
 
         if (data.isEmpty()) {
-            NDArray array = parameter.getArray();
-
-            if (parameterServer != null) {
-                // initialize on parameter store for first time
-                parameterServer.init(parameterId, new NDArray[] {array});
-                NDArray[] arrays = new NDArray[deviceMap.size()];
-                for (Map.Entry<Device, Integer> entry : deviceMap.entrySet()) {
-                    Device dev = entry.getKey();
-                    int i = entry.getValue();
-                    if (i == index && array.getDevice().equals(dev)) {
-                        arrays[i] = array;
+            // the mirrors are created once, even when devices are trained by several threads
+            synchronized (data) {
+                if (data.isEmpty()) {
+                    NDArray array = parameter.getArray();
+
+                    if (parameterServer != null) {
+                        // initialize on parameter store for first time
+                        parameterServer.init(parameterId, new NDArray[] {array});
+                        NDArray[] arrays = new NDArray[deviceMap.size()];
+                        for (Map.Entry<Device, Integer> entry : deviceMap.entrySet()) {
+                            Device dev = entry.getKey();
+                            int i = entry.getValue();
+                            if (i == index && array.getDevice().equals(dev)) {
+                                arrays[i] = array;
+                                if (gradReq != GradReq.WRITE) {
+                                    array.attachGradient(gradReq);
+                                }
+                            } else {
+                                arrays[i] = array.toDevice(dev, true);
+                                arrays[i].attach(manager);
+                                arrays[i].attachGradient(gradReq);
+                            }
+                        }
+                        data.addAll(arrays);
                     } else {
-                        arrays[i] = array.toDevice(dev, true);
-                        arrays[i].attach(manager);
-                        arrays[i].attachGradient();
+                        if (copy || !array.getDevice().equals(device)) {
+                            array = array.toDevice(device, true);
+                            array.attach(manager);
+                            array.attachGradient(gradReq);
+                        } else if (gradReq != GradReq.WRITE) {
+                            array.attachGradient(gradReq);
+                        }
+                        data.add(array);
                     }
-                    data.add(arrays[i]);
-                }
-            } else {
-                if (copy || !array.getDevice().equals(device)) {
-                    array = array.toDevice(device, true);
-                    array.attach(manager);
-                    array.attachGradient();
                 }
-                data.add(array);
             }
         }
 
@@ -168,6 +226,10 @@ public class ParameterStore {
             list.add(array);
         }
 
+        private void addAll(NDArray[] arrays) {
+            list.addAll(Arrays.asList(arrays));
+        }
+
         private NDArray get(int index) {
             return list.get(index);
         }
@@ -95,7 +95,14 @@ public interface Trainer extends AutoCloseable {
      */
     void validateBatch(Batch batch);
 
-    /** Updates all of the parameters of the model once. */
+    /**
+     * Updates all of the parameters of the model once.
+     *
+     * <p>When gradients are accumulated over several batches, only the last call of each group
+     * updates the parameters.
+     *
+     * @see TrainingConfig#getGradientAccumulation()
+     */
     void step();
 
     /**
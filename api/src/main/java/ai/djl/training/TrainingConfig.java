@@ -13,6 +13,7 @@
 package ai.djl.training;
 
 import ai.djl.Device;
+import ai.djl.training.dataset.Batch;
 import ai.djl.training.evaluator.Evaluator;
 import ai.djl.training.initializer.Initializer;
 import ai.djl.training.loss.Loss;
@@ -81,4 +82,49 @@ public interface TrainingConfig {
      * @return the batch size
      */
     int getBatchSize();
+
+    /**
+     * Returns whether the {@link Trainer} runs the forward and backward pass of each device on its
+     * own thread.
+     *
+     * <p>With several devices, the batch is split between them. By default, the splits are
+     * processed one after the other by the calling thread, so only one device is queueing work at
+     * a time. With a thread per device, the splits are processed concurrently, and the trainer
+     * waits for all of them before returning.
+     *
+     * @return {@code true} to use a thread per device
+     */
+    default boolean isThreadPerDevice() {
+        return false;
+    }
+
+    /**
+     * Returns the type of the engine's native parameter server used to aggregate the gradients.
+     *
+     * <p>By default, the gradients are aggregated in Java by a {@link LocalParameterServer}. An
+     * engine may provide a native parameter server instead, which aggregates the gradients inside
+     * the engine, for example the {@code device} and {@code local} KVStore types of MXNet.
+     *
+     * @return the type of the native parameter server, or {@code null} to use a {@link
+     *     LocalParameterServer}
+     */
+    default String getParameterServerType() {
+        return null;
+    }
+
+    /**
+     * Returns the number of consecutive {@link Trainer#trainBatch(Batch)} calls whose gradients are
+     * summed before the parameters are updated.
+     *
+     * <p>With a value of {@code n} greater than 1, the backward passes add to the gradients, and
+     * only every {@code n}-th call to {@link Trainer#step()} updates the parameters and resets the
+     * gradients. This trains with an effective batch size of {@code n} times the batch size while
+     * only holding one batch in memory. As the gradients are summed, the optimizer's rescale
+     * gradient can be divided by {@code n} to average them instead.
+     *
+     * @return the number of batches to accumulate the gradients over
+     */
+    default int getGradientAccumulation() {
+        return 1;
+    }
 }
@@ -13,9 +13,8 @@
 package ai.djl.training.loss;
 
 import ai.djl.ndarray.NDArray;
-import ai.djl.ndarray.NDArrays;
+import ai.djl.ndarray.NDExpression;
 import ai.djl.ndarray.NDList;
-import ai.djl.nn.Activation;
 
 /**
  * {@code HingeLoss} is a type of {@link Loss}.
@@ -26,6 +25,7 @@ public class HingeLoss extends Loss {
 
     private int margin;
     private float weight;
+    private NDExpression expression;
 
     /** Calculates Hinge loss. */
     public HingeLoss() {
@@ -52,6 +52,8 @@ public class HingeLoss extends Loss {
         super(name);
         this.margin = margin;
         this.weight = weight;
+        NDExpression loss = NDExpression.input(0).mul(NDExpression.input(1)).rsub(margin).relu();
+        expression = weight != 1 ? loss.mul(weight) : loss;
     }
 
     /** {@inheritDoc} */
@@ -59,10 +61,7 @@ public class HingeLoss extends Loss {
     public NDArray getLoss(NDList label, NDList prediction) {
         NDArray pred = prediction.singletonOrThrow();
         NDArray labelReshaped = label.singletonOrThrow().reshape(pred.getShape());
-        NDArray loss = Activation.relu(NDArrays.sub(margin, labelReshaped.mul(pred)));
-        if (weight != 1) {
-            loss = loss.mul(weight);
-        }
+        NDArray loss = expression.eval(labelReshaped, pred);
         return loss.mean();
     }
 }
@@ -13,6 +13,7 @@
 package ai.djl.training.loss;
 
 import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDExpression;
 import ai.djl.ndarray.NDList;
 
 /**
@@ -23,6 +24,7 @@ import ai.djl.ndarray.NDList;
 public class L2Loss extends Loss {
 
     private float weight;
+    private NDExpression expression;
 
     /** Calculate L2Loss between the label and prediction, a.k.a. MSE(Mean Square Error). */
     public L2Loss() {
@@ -47,6 +49,7 @@ public class L2Loss extends Loss {
     public L2Loss(String name, float weight) {
         super(name);
         this.weight = weight;
+        expression = NDExpression.input(0).sub(NDExpression.input(1)).square().mul(weight);
     }
 
     /** {@inheritDoc} */
@@ -54,7 +57,7 @@ public class L2Loss extends Loss {
     public NDArray getLoss(NDList label, NDList prediction) {
         NDArray pred = prediction.singletonOrThrow();
         NDArray labelReshaped = label.singletonOrThrow().reshape(pred.getShape());
-        NDArray loss = labelReshaped.sub(pred).square().mul(weight);
+        NDArray loss = expression.eval(labelReshaped, pred);
         return loss.mean();
     }
 }
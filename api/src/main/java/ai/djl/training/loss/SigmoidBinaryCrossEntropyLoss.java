@@ -14,8 +14,8 @@ package ai.djl.training.loss;
 
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDArrays;
+import ai.djl.ndarray.NDExpression;
 import ai.djl.ndarray.NDList;
-import ai.djl.nn.Activation;
 
 /**
  * {@code SigmoidBinaryCrossEntropyLoss} is a type of {@link Loss}.
@@ -27,6 +27,7 @@ public class SigmoidBinaryCrossEntropyLoss extends Loss {
 
     private float weight;
     private boolean fromSigmoid;
+    private NDExpression expression;
 
     /** Performs Sigmoid cross-entropy loss for binary classification. */
     public SigmoidBinaryCrossEntropyLoss() {
@@ -53,6 +54,11 @@ public class SigmoidBinaryCrossEntropyLoss extends Loss {
         super(name);
         this.weight = weight;
         this.fromSigmoid = fromSigmoid;
+        // TODO: Add Position weight option
+        NDExpression pred = NDExpression.input(0);
+        NDExpression loss =
+                pred.relu().sub(pred.mul(NDExpression.input(1))).add(pred.abs().neg().softrelu());
+        expression = weight != 1f ? loss.mul(weight) : loss;
     }
 
     /** {@inheritDoc} */
@@ -61,21 +67,15 @@ public class SigmoidBinaryCrossEntropyLoss extends Loss {
         NDArray pred = prediction.singletonOrThrow();
         NDArray lab = label.singletonOrThrow();
         lab = lab.reshape(pred.getShape());
-        NDArray loss;
         if (!fromSigmoid) {
-            // TODO: Add Position weight option
-            loss =
-                    Activation.relu(pred)
-                            .sub(pred.mul(lab))
-                            .add(Activation.softrelu(pred.abs().neg()));
-        } else {
-            double eps = 1e-12;
-            loss =
-                    pred.add(eps)
-                            .log()
-                            .mul(lab)
-                            .add(NDArrays.sub(1., pred).add(eps).mul(NDArrays.sub(1., lab)));
+            return expression.eval(pred, lab).mean();
         }
+        double eps = 1e-12;
+        NDArray loss =
+                pred.add(eps)
+                        .log()
+                        .mul(lab)
+                        .add(NDArrays.sub(1., pred).add(eps).mul(NDArrays.sub(1., lab)));
         if (weight != 1f) {
             loss = loss.mul(weight);
         }
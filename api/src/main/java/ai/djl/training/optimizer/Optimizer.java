@@ -100,6 +100,23 @@ public abstract class Optimizer {
      */
     public abstract void update(String parameterId, NDArray weight, NDArray grad);
 
+    /**
+     * Updates several parameters according to their gradients.
+     *
+     * <p>By default, each parameter is updated on its own with {@link #update(String, NDArray,
+     * NDArray)}. Optimizers with a multi-tensor kernel override it to update many parameters with
+     * a single operator call.
+     *
+     * @param parameterIds the parameters to be updated
+     * @param weights the weights of each parameter
+     * @param grads the gradients of each parameter
+     */
+    public void updateAll(String[] parameterIds, NDArray[] weights, NDArray[] grads) {
+        for (int i = 0; i < parameterIds.length; ++i) {
+            update(parameterIds[i], weights[i], grads[i]);
+        }
+    }
+
     protected NDArray withDefaultState(
             Map<String, Map<Device, NDArray>> state,
             String key,
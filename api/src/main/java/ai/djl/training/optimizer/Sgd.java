@@ -17,6 +17,9 @@ import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.internal.NDArrayEx;
 import ai.djl.training.optimizer.learningrate.LearningRateTracker;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -74,6 +77,58 @@ public class Sgd extends Optimizer {
                 inputs, weights, learningRate, weightDecay, rescaleGrad, clipGrad, momentum, true);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The parameters are grouped by device and data type, and each group is updated by a single
+     * multi-tensor operator call.
+     */
+    @Override
+    public void updateAll(String[] parameterIds, NDArray[] weights, NDArray[] grads) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < parameterIds.length; ++i) {
+            String key = weights[i].getDevice().toString() + weights[i].getDataType();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        float weightDecay = getWeightDecay();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() == 1) {
+                int index = group.get(0);
+                update(parameterIds[index], weights[index], grads[index]);
+                continue;
+            }
+            int size = group.size();
+            NDList inputs = new NDList(size * (momentum != 0f ? 3 : 2));
+            NDList outputs = new NDList(size);
+            float[] learningRates = new float[size];
+            float[] weightDecays = new float[size];
+            for (int i = 0; i < size; ++i) {
+                int index = group.get(i);
+                String parameterId = parameterIds[index];
+                NDArray weight = weights[index];
+                inputs.add(weight);
+                inputs.add(grads[index]);
+                if (momentum != 0f) {
+                    inputs.add(
+                            withDefaultState(
+                                    momentumStates,
+                                    parameterId,
+                                    weight.getDevice(),
+                                    k -> weight.zerosLike()));
+                }
+                outputs.add(weight);
+                learningRates[i] =
+                        learningRateTracker.getNewLearningRate(updateCount(parameterId));
+                weightDecays[i] = weightDecay;
+            }
+
+            NDArrayEx ex = outputs.get(0).getNDArrayInternal();
+            ex.multiSgdUpdate(
+                    inputs, outputs, learningRates, weightDecays, rescaleGrad, clipGrad, momentum);
+        }
+    }
+
     /** The Builder to construct an {@link Sgd} object. */
     public static final class Builder extends OptimizerBuilder<Builder> {
 
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.translate;
+
+import ai.djl.ndarray.NDList;
+
+/**
+ * A {@link Translator} that passes the {@link NDList} through to and from the model unchanged.
+ *
+ * <p>The output {@link NDList} is detached from the {@link TranslatorContext}, and must be closed
+ * by the caller.
+ */
+public class NoopTranslator implements Translator<NDList, NDList> {
+
+    /** {@inheritDoc} */
+    @Override
+    public NDList processInput(TranslatorContext ctx, NDList input) {
+        return input;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NDList processOutput(TranslatorContext ctx, NDList list) {
+        list.detach();
+        return list;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Batchifier getBatchifier() {
+        return null;
+    }
+}
@@ -79,4 +79,19 @@ public interface Translator<I, O> extends PreProcessor<I>, PostProcessor<O> {
     default Batchifier getBatchifier() {
         return Batchifier.STACK;
     }
+
+    /**
+     * Returns whether the items of a batch can be processed concurrently.
+     *
+     * <p>If {@code true}, the {@link Predictor} fans the {@link #processInput(TranslatorContext,
+     * Object)} calls of a batch out over the common {@link java.util.concurrent.ForkJoinPool}
+     * before batchifying, and likewise the {@link #processOutput(TranslatorContext,
+     * ai.djl.ndarray.NDList)} calls after unbatchifying. Only return {@code true} if both methods
+     * are thread safe. The {@link TranslatorContext} of the batch is shared by all the calls.
+     *
+     * @return whether the items of a batch can be processed concurrently
+     */
+    default boolean isParallelizable() {
+        return false;
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code DirectBufferPool} recycles direct {@link ByteBuffer}s by power of two size classes.
+ *
+ * <p>Allocating a direct buffer reserves native memory that is only given back when the buffer is
+ * garbage collected. Under load, this leads to direct memory exhaustion and to the full GCs
+ * triggered to reclaim it. The pool keeps released buffers and hands them out again for requests
+ * of the same size class. Requests larger than the maximum buffer size are not pooled, and
+ * released buffers are dropped once the pool holds its maximum number of idle bytes.
+ *
+ * <p>The default limits can be changed with the "ai.djl.buffer_pool.max_size" (idle bytes) and
+ * "ai.djl.buffer_pool.max_buffer_size" (bytes) system properties.
+ */
+public class DirectBufferPool {
+
+    private static final int MIN_SIZE_CLASS = 8; // 256 bytes
+    private static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    private int maxBufferSize;
+    private long maxSize;
+    private List<Deque<ByteBuffer>> freeLists;
+    private AtomicLong idleBytes;
+    private AtomicLong hits;
+    private AtomicLong misses;
+
+    /** Creates a new instance of {@code DirectBufferPool} with the default limits. */
+    public DirectBufferPool() {
+        this(
+                Long.getLong("ai.djl.buffer_pool.max_size", DEFAULT_MAX_SIZE),
+                Integer.getInteger("ai.djl.buffer_pool.max_buffer_size", DEFAULT_MAX_BUFFER_SIZE));
+    }
+
+    /**
+     * Creates a new instance of {@code DirectBufferPool}.
+     *
+     * @param maxSize the maximum number of bytes kept by idle buffers
+     * @param maxBufferSize the size of the largest buffer to pool
+     */
+    public DirectBufferPool(long maxSize, int maxBufferSize) {
+        if (maxBufferSize < 1) {
+            throw new IllegalArgumentException("maxBufferSize must be positive: " + maxBufferSize);
+        }
+        this.maxSize = maxSize;
+        this.maxBufferSize = maxBufferSize;
+        int numOfClasses = sizeClass(maxBufferSize) + 1;
+        freeLists = new ArrayList<>(numOfClasses);
+        for (int i = 0; i < numOfClasses; ++i) {
+            freeLists.add(new ConcurrentLinkedDeque<>());
+        }
+        idleBytes = new AtomicLong();
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+    }
+
+    /**
+     * Returns a cleared direct buffer with at least the requested capacity.
+     *
+     * @param capacity the minimum capacity of the buffer, in bytes
+     * @return a cleared direct buffer
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > maxBufferSize) {
+            misses.incrementAndGet();
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer buffer = freeLists.get(sizeClass).pollFirst();
+        if (buffer == null) {
+            misses.incrementAndGet();
+            return ByteBuffer.allocateDirect(1 << sizeClass);
+        }
+        idleBytes.addAndGet(-buffer.capacity());
+        hits.incrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)} to the pool.
+     *
+     * <p>The buffer must not be used after it is released.
+     *
+     * @param buffer the buffer to release
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (Integer.bitCount(capacity) != 1
+                || capacity < 1 << MIN_SIZE_CLASS
+                || sizeClass(capacity) >= freeLists.size()) {
+            // not allocated for a size class
+            return;
+        }
+        if (idleBytes.addAndGet(capacity) > maxSize) {
+            idleBytes.addAndGet(-capacity);
+            return;
+        }
+        freeLists.get(sizeClass(capacity)).addFirst(buffer);
+    }
+
+    /**
+     * Returns the number of requests served with a pooled buffer.
+     *
+     * @return the number of requests served with a pooled buffer
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests that allocated a new buffer.
+     *
+     * @return the number of requests that allocated a new buffer
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of bytes held by idle buffers in the pool.
+     *
+     * @return the number of bytes held by idle buffers in the pool
+     */
+    public long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= 1 << MIN_SIZE_CLASS) {
+            return MIN_SIZE_CLASS;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.inference;
+
+import ai.djl.metric.Metrics;
+import ai.djl.translate.TranslateException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BatchPredictorTest {
+
+    @Test
+    public void testCoalesce() throws InterruptedException, ExecutionException {
+        int numOfThreads = 16;
+        RecordingPredictor recorder = new RecordingPredictor();
+        Metrics metrics = new Metrics();
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        try (BatchPredictor<Integer, Integer> predictor =
+                new BatchPredictor<>(recorder, 4, 50, TimeUnit.MILLISECONDS)) {
+            predictor.setMetrics(metrics);
+            List<Callable<Integer>> callables = new ArrayList<>(numOfThreads);
+            for (int i = 0; i < numOfThreads; ++i) {
+                int input = i;
+                callables.add(() -> predictor.predict(input));
+            }
+            List<Future<Integer>> futures = executor.invokeAll(callables);
+            for (int i = 0; i < numOfThreads; ++i) {
+                Assert.assertEquals(futures.get(i).get().intValue(), i * 2);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(recorder.closed);
+        Assert.assertTrue(recorder.batchSizes.size() < numOfThreads);
+        int total = 0;
+        for (int size : recorder.batchSizes) {
+            Assert.assertTrue(size <= 4);
+            total += size;
+        }
+        Assert.assertEquals(total, numOfThreads);
+        Assert.assertTrue(metrics.hasMetric("BatchSize"));
+    }
+
+    @Test
+    public void testBatchPredict() throws TranslateException {
+        try (BatchPredictor<Integer, Integer> predictor =
+                new BatchPredictor<>(new RecordingPredictor(), 2, 0, TimeUnit.MILLISECONDS)) {
+            List<Integer> result = predictor.batchPredict(Arrays.asList(1, 2, 3));
+            Assert.assertEquals(result, Arrays.asList(2, 4, 6));
+        }
+    }
+
+    @Test(expectedExceptions = TranslateException.class)
+    public void testTranslateException() throws TranslateException {
+        RecordingPredictor recorder = new RecordingPredictor();
+        recorder.exception = new TranslateException("Some exception");
+        try (BatchPredictor<Integer, Integer> predictor =
+                new BatchPredictor<>(recorder, 2, 0, TimeUnit.MILLISECONDS)) {
+            predictor.predict(1);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testClosed() throws TranslateException {
+        BatchPredictor<Integer, Integer> predictor =
+                new BatchPredictor<>(new RecordingPredictor(), 2, 0, TimeUnit.MILLISECONDS);
+        predictor.close();
+        predictor.predict(1);
+    }
+
+    private static final class RecordingPredictor implements Predictor<Integer, Integer> {
+
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        TranslateException exception;
+        boolean closed;
+
+        /** {@inheritDoc} */
+        @Override
+        public Integer predict(Integer input) throws TranslateException {
+            return batchPredict(Collections.singletonList(input)).get(0);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public List<Integer> batchPredict(List<Integer> inputs) throws TranslateException {
+            if (exception != null) {
+                throw exception;
+            }
+            batchSizes.add(inputs.size());
+            List<Integer> ret = new ArrayList<>(inputs.size());
+            for (Integer input : inputs) {
+                ret.add(input * 2);
+            }
+            return ret;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void setMetrics(Metrics metrics) {}
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -25,15 +25,23 @@ import ai.djl.test.mock.EchoTranslator;
 import ai.djl.test.mock.MockImageTranslator;
 import ai.djl.test.mock.MockModel;
 import ai.djl.test.mock.MockNDArray;
+import ai.djl.translate.Batchifier;
 import ai.djl.translate.TranslateException;
 import ai.djl.translate.Translator;
 import ai.djl.translate.TranslatorContext;
+import ai.djl.util.PairList;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -118,6 +126,110 @@ public class InferenceTest {
         Assert.assertEquals(result, "input");
     }
 
+    @Test
+    public void testWarmup() throws TranslateException {
+        PairList<String, Shape> shapes = new PairList<>();
+        shapes.add("data", new Shape(1, 3));
+        Model model = new MockModel();
+        Metrics metrics = new Metrics();
+        model.warmup(Arrays.asList(shapes, shapes), metrics);
+        Assert.assertEquals(metrics.getMetric("Warmup").size(), 2);
+    }
+
+    @Test
+    public void testPredictAsync() throws InterruptedException, ExecutionException {
+        EchoTranslator<String> translator = new EchoTranslator<>();
+        translator.setPreprocessResult(
+                new NDList(
+                        new MockNDArray(
+                                null, null, new Shape(3), DataType.FLOAT32, SparseFormat.DENSE)));
+        Model model = new MockModel();
+        Metrics metrics = new Metrics();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Predictor<String, String> predictor = model.newPredictor(translator)) {
+            predictor.setMetrics(metrics);
+            CompletableFuture<String> first = predictor.predictAsync("input", executor);
+            CompletableFuture<String> second = predictor.predictAsync("input", executor);
+            Assert.assertEquals(first.get(), "input");
+            Assert.assertEquals(second.get(), "input");
+        }
+        Assert.assertTrue(metrics.hasMetric("Preprocess"));
+        Assert.assertTrue(metrics.hasMetric("Inference"));
+        Assert.assertTrue(metrics.hasMetric("Postprocess"));
+
+        translator.setInputException(new TranslateException("Some exception"));
+        try (Predictor<String, String> predictor = model.newPredictor(translator)) {
+            predictor.predictAsync("input", executor).get();
+            Assert.fail("predictAsync() should fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TranslateException);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelProcessing() throws TranslateException {
+        Translator<Integer, Integer> translator =
+                new Translator<Integer, Integer>() {
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public NDList processInput(TranslatorContext ctx, Integer input) {
+                        MockNDArray array =
+                                new MockNDArray(
+                                        null,
+                                        null,
+                                        new Shape(1),
+                                        DataType.INT32,
+                                        SparseFormat.DENSE);
+                        array.setName(input.toString());
+                        return new NDList(array);
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public Integer processOutput(TranslatorContext ctx, NDList list) {
+                        return Integer.valueOf(list.head().getName()) * 2;
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public Batchifier getBatchifier() {
+                        return new Batchifier() {
+
+                            /** {@inheritDoc} */
+                            @Override
+                            public NDList batchify(NDList[] inputs) {
+                                NDList list = new NDList();
+                                for (NDList input : inputs) {
+                                    list.addAll(input);
+                                }
+                                return list;
+                            }
+
+                            /** {@inheritDoc} */
+                            @Override
+                            public NDList[] unbatchify(NDList inputs) {
+                                return inputs.stream().map(NDList::new).toArray(NDList[]::new);
+                            }
+                        };
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public boolean isParallelizable() {
+                        return true;
+                    }
+                };
+
+        Model model = new MockModel();
+        try (Predictor<Integer, Integer> predictor = model.newPredictor(translator)) {
+            List<Integer> result = predictor.batchPredict(Arrays.asList(1, 2, 3, 4, 5, 6));
+            Assert.assertEquals(result, Arrays.asList(2, 4, 6, 8, 10, 12));
+        }
+    }
+
     @Test(expectedExceptions = IOException.class)
     public void loadModelException() throws IOException, ModelException {
         Path modelDir = Paths.get("build/non-exist-model");
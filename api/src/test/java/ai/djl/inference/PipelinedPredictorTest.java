@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.inference;
+
+import ai.djl.metric.Metrics;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.test.mock.MockModel;
+import ai.djl.test.mock.MockNDArray;
+import ai.djl.translate.TranslateException;
+import ai.djl.translate.Translator;
+import ai.djl.translate.TranslatorContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PipelinedPredictorTest {
+
+    @Test
+    public void testPipeline()
+            throws TranslateException, InterruptedException, ExecutionException {
+        Metrics metrics = new Metrics();
+        try (PipelinedPredictor<String, String> predictor =
+                new PipelinedPredictor<>(new MockModel(), new AttachmentTranslator(), 2)) {
+            predictor.setMetrics(metrics);
+            Assert.assertEquals(predictor.predict("input"), "input");
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; ++i) {
+                futures.add(predictor.predictAsync("input" + i, Runnable::run));
+            }
+            for (int i = 0; i < 10; ++i) {
+                Assert.assertEquals(futures.get(i).get(), "input" + i);
+            }
+        }
+        Assert.assertEquals(metrics.getMetric("Preprocess").size(), 11);
+        Assert.assertEquals(metrics.getMetric("Inference").size(), 11);
+        Assert.assertEquals(metrics.getMetric("Postprocess").size(), 11);
+    }
+
+    @Test(expectedExceptions = TranslateException.class)
+    public void testTranslateException() throws TranslateException {
+        try (PipelinedPredictor<String, String> predictor =
+                new PipelinedPredictor<>(new MockModel(), new AttachmentTranslator(), 2)) {
+            predictor.predict(null);
+        }
+    }
+
+    private static final class AttachmentTranslator implements Translator<String, String> {
+
+        /** {@inheritDoc} */
+        @Override
+        public NDList processInput(TranslatorContext ctx, String input)
+                throws TranslateException {
+            if (input == null) {
+                throw new TranslateException("Input is null.");
+            }
+            ctx.setAttachment("input", input);
+            return new NDList(
+                    new MockNDArray(
+                            null, null, new Shape(3), DataType.FLOAT32, SparseFormat.DENSE));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String processOutput(TranslatorContext ctx, NDList list) {
+            return (String) ctx.getAttachment("input");
+        }
+    }
+}
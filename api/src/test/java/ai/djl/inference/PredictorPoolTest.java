@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.inference;
+
+import ai.djl.Model;
+import ai.djl.metric.Metrics;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.test.mock.EchoTranslator;
+import ai.djl.test.mock.MockModel;
+import ai.djl.test.mock.MockNDArray;
+import ai.djl.translate.TranslateException;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PredictorPoolTest {
+
+    @Test
+    public void testBorrow() throws InterruptedException, TranslateException {
+        Model model = new MockModel();
+        Metrics metrics = new Metrics();
+        try (PredictorPool<String, String> pool = new PredictorPool<>(model, newTranslator(), 2)) {
+            pool.setMetrics(metrics);
+            Predictor<String, String> first = pool.borrow();
+            Predictor<String, String> second = pool.borrow();
+            Assert.assertEquals(pool.size(), 2);
+            Assert.assertNull(pool.borrow(10, TimeUnit.MILLISECONDS));
+
+            Assert.assertEquals(first.predict("input"), "input");
+            first.close();
+            second.close();
+            Assert.assertEquals(pool.getIdleCount(), 2);
+
+            Assert.assertEquals(pool.predict("input"), "input");
+            Assert.assertEquals(pool.size(), 2);
+            Assert.assertEquals(pool.getIdleCount(), 2);
+        }
+        Assert.assertTrue(metrics.hasMetric("PredictorPoolWait"));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testReturned() throws InterruptedException, TranslateException {
+        try (PredictorPool<String, String> pool =
+                new PredictorPool<>(new MockModel(), newTranslator(), 1)) {
+            Predictor<String, String> predictor = pool.borrow();
+            predictor.close();
+            predictor.predict("input");
+        }
+    }
+
+    private static EchoTranslator<String> newTranslator() {
+        EchoTranslator<String> translator = new EchoTranslator<>();
+        translator.setPreprocessResult(
+                new NDList(
+                        new MockNDArray(
+                                null, null, new Shape(3), DataType.FLOAT32, SparseFormat.DENSE)));
+        return translator;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.ndarray;
+
+import ai.djl.Device;
+import ai.djl.metric.Metrics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MemoryTrackerTest {
+
+    @Test
+    public void testRollUp() {
+        MemoryTracker root = new MemoryTracker(null);
+        MemoryTracker child = new MemoryTracker(root);
+        child.allocate(Device.cpu(), 100);
+        child.allocate(Device.gpu(), 50);
+        root.allocate(Device.cpu(), 10);
+        Assert.assertEquals(child.getCurrentBytes(), 150L);
+        Assert.assertEquals(root.getCurrentBytes(), 160L);
+        Assert.assertEquals(root.getCurrentBytes(Device.cpu()), 110L);
+
+        child.free(Device.cpu(), 100);
+        Assert.assertEquals(child.getCurrentBytes(), 50L);
+        Assert.assertEquals(child.getPeakBytes(), 150L);
+        Assert.assertEquals(root.getCurrentBytesByDevice().get(Device.gpu()).longValue(), 50L);
+
+        child.resetPeak();
+        Assert.assertEquals(child.getPeakBytes(), 50L);
+
+        Metrics metrics = new Metrics();
+        root.addMetrics(metrics);
+        Assert.assertEquals(metrics.latestMetric("NativeMemory").getValue().longValue(), 60L);
+        Assert.assertTrue(metrics.hasMetric("NativeMemory-gpu(0)"));
+    }
+
+    @Test
+    public void testEnabled() {
+        MemoryTracker root = new MemoryTracker(null);
+        MemoryTracker child = new MemoryTracker(root);
+        Assert.assertFalse(child.isEnabled());
+        root.setLimit(100);
+        Assert.assertTrue(child.isEnabled());
+        root.setLimit(-1);
+        child.setEnabled(true);
+        Assert.assertTrue(child.isEnabled());
+        Assert.assertFalse(root.isEnabled());
+    }
+
+    @Test
+    public void testLimit() {
+        MemoryTracker root = new MemoryTracker(null);
+        MemoryTracker child = new MemoryTracker(root);
+        root.setLimit(100);
+        child.allocate(Device.cpu(), 100);
+        try {
+            child.allocate(Device.cpu(), 1);
+            Assert.fail("The limit of the parent should apply.");
+        } catch (MemoryLimitExceededException e) {
+            Assert.assertEquals(child.getCurrentBytes(), 100L);
+        }
+        child.free(Device.cpu(), 100);
+        child.allocate(Device.cpu(), 1);
+        Assert.assertEquals(root.getCurrentBytes(), 1L);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.ndarray;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class NDExpressionTest {
+
+    @Test
+    public void testDescription() {
+        NDExpression x = NDExpression.input(0);
+        NDExpression y = NDExpression.input(2);
+        NDExpression expression = x.sub(y.mul(2)).rsub(1).relu();
+        Assert.assertEquals(
+                expression.toString(), "relu(subtract(1, subtract(x0, multiply(x2, 2))))");
+        Assert.assertEquals(expression.getMaxInputIndex(), 2);
+        Assert.assertEquals(
+                x.add(y).toString(), NDExpression.input(0).add(NDExpression.input(2)).toString());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMissingInput() {
+        NDExpression.input(1).exp().eval(new NDArray[1]);
+    }
+}
@@ -23,6 +23,7 @@ import ai.djl.ndarray.internal.NDArrayEx;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.training.GradReq;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
@@ -135,6 +136,10 @@ public class MockNDArray implements NDArray {
     @Override
     public void attachGradient() {}
 
+    /** {@inheritDoc} */
+    @Override
+    public void attachGradient(GradReq gradReq) {}
+
     /** {@inheritDoc} */
     @Override
     public NDArray getGradient() {
@@ -263,6 +263,17 @@ public class MockNDArrayEx implements NDArrayEx {
             float momentum,
             boolean lazyUpdate) {}
 
+    /** {@inheritDoc} */
+    @Override
+    public void multiSgdUpdate(
+            NDList inputs,
+            NDList weights,
+            float[] learningRates,
+            float[] weightDecays,
+            float rescaleGrad,
+            float clipGrad,
+            float momentum) {}
+
     /** {@inheritDoc} */
     @Override
     public NDList convolution(
@@ -53,7 +53,7 @@ public class MockNDManager implements NDManager {
     /** {@inheritDoc} */
     @Override
     public NDArray zeros(Shape shape, DataType dataType, Device device) {
-        return null;
+        return create(shape, dataType, device);
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.util;
+
+import java.nio.ByteBuffer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DirectBufferPoolTest {
+
+    @Test
+    public void testAcquireRelease() {
+        DirectBufferPool pool = new DirectBufferPool(1024, 512);
+        ByteBuffer buffer = pool.acquire(300);
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(buffer.capacity(), 512);
+        Assert.assertEquals(pool.getMissCount(), 1L);
+
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        Assert.assertEquals(pool.getIdleBytes(), 512L);
+
+        ByteBuffer reused = pool.acquire(400);
+        Assert.assertSame(reused, buffer);
+        Assert.assertEquals(reused.position(), 0);
+        Assert.assertEquals(pool.getHitCount(), 1L);
+        Assert.assertEquals(pool.getIdleBytes(), 0L);
+
+        // larger than the maximum buffer size
+        ByteBuffer large = pool.acquire(1000);
+        Assert.assertEquals(large.capacity(), 1000);
+        pool.release(large);
+        Assert.assertEquals(pool.getIdleBytes(), 0L);
+    }
+
+    @Test
+    public void testMaxSize() {
+        DirectBufferPool pool = new DirectBufferPool(512, 512);
+        ByteBuffer first = pool.acquire(512);
+        ByteBuffer second = pool.acquire(512);
+        pool.release(first);
+        pool.release(second);
+        Assert.assertEquals(pool.getIdleBytes(), 512L);
+        Assert.assertSame(pool.acquire(512), first);
+        Assert.assertEquals(pool.getMissCount() + pool.getHitCount(), 3L);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.integration.tests.inference;
+
+import ai.djl.Model;
+import ai.djl.inference.Predictor;
+import ai.djl.inference.PredictorPool;
+import ai.djl.ndarray.MemoryTracker;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.nn.core.Linear;
+import ai.djl.translate.TranslateException;
+import ai.djl.translate.Translator;
+import ai.djl.translate.TranslatorContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PredictorPoolTest {
+
+    @Test
+    public void testSharedParameters() throws InterruptedException, TranslateException {
+        try (Model model = Model.newInstance()) {
+            Linear block = new Linear.Builder().setOutChannels(4).build();
+            model.setBlock(block);
+            block.initialize(model.getNDManager(), DataType.FLOAT32, new Shape(1, 3));
+
+            // the parameters already exist, anything counted from now on is a copy of them
+            MemoryTracker tracker = model.getNDManager().getMemoryTracker();
+            tracker.setEnabled(true);
+            try (PredictorPool<float[], float[]> pool =
+                    new PredictorPool<>(model, new FloatTranslator(), 2)) {
+                Predictor<float[], float[]> first = pool.borrow();
+                Predictor<float[], float[]> second = pool.borrow();
+                float[] input = {1f, 2f, 3f};
+                Assert.assertEquals(first.predict(input), second.predict(input));
+                Assert.assertEquals(tracker.getCurrentBytes(), 0);
+                first.close();
+                second.close();
+            } finally {
+                tracker.setEnabled(false);
+            }
+        }
+    }
+
+    private static final class FloatTranslator implements Translator<float[], float[]> {
+
+        /** {@inheritDoc} */
+        @Override
+        public NDList processInput(TranslatorContext ctx, float[] input) {
+            return new NDList(ctx.getNDManager().create(input));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public float[] processOutput(TranslatorContext ctx, NDList list) {
+            return list.singletonOrThrow().toFloatArray();
+        }
+    }
+}
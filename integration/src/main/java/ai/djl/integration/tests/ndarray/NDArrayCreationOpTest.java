@@ -20,6 +20,7 @@ import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.stream.IntStream;
 import org.testng.Assert;
@@ -59,6 +60,21 @@ public class NDArrayCreationOpTest {
         }
     }
 
+    @Test
+    public void testByteBufferView() {
+        try (NDManager manager = NDManager.newBaseManager()) {
+            NDArray array = manager.arange(6f).reshape(2, 3);
+            ByteBuffer bb = array.asByteBufferView();
+            Assert.assertTrue(bb.isReadOnly());
+            Assert.assertEquals(bb.remaining(), 24);
+            Assert.assertEquals(bb.asFloatBuffer().get(5), 5f);
+
+            array.set(new float[] {6f, 5f, 4f, 3f, 2f, 1f});
+            Assert.assertEquals(array.toFloatArray(), new float[] {6f, 5f, 4f, 3f, 2f, 1f});
+            Assert.assertEquals(array.add(1f).asByteBufferView().asFloatBuffer().get(0), 7f);
+        }
+    }
+
     @Test
     public void testCreateCSRMatrix() {
         try (NDManager manager = NDManager.newBaseManager()) {
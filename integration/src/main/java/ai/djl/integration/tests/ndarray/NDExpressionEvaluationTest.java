@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.integration.tests.ndarray;
+
+import ai.djl.integration.util.Assertions;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDExpression;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.Shape;
+import org.testng.annotations.Test;
+
+public class NDExpressionEvaluationTest {
+
+    @Test
+    public void testBinaryOperations() {
+        try (NDManager manager = NDManager.newBaseManager()) {
+            NDArray x = manager.create(new float[] {1f, -2f, 3f, -4f, 5f, 6f}, new Shape(2, 3));
+            NDArray y = manager.create(new float[] {2f, 4f, -1f, 0.5f, 3f, -6f}, new Shape(2, 3));
+            NDExpression x0 = NDExpression.input(0);
+            NDExpression x1 = NDExpression.input(1);
+
+            assertFused(manager, x0.sub(x1).square().mul(0.5), x, y);
+            assertFused(manager, x0.add(x1).div(x1).neg(), x, y);
+            assertFused(manager, x0.mul(x1).abs().add(1).log(), x, y);
+        }
+    }
+
+    @Test
+    public void testScalarOperations() {
+        try (NDManager manager = NDManager.newBaseManager()) {
+            NDArray x = manager.create(new float[] {1f, -2f, 3f, -4f, 0.5f, 6f}, new Shape(2, 3));
+            NDExpression x0 = NDExpression.input(0);
+
+            // the scalar comes first in rsub and rdiv
+            assertFused(manager, x0.mul(2).rsub(1).relu(), x);
+            assertFused(manager, x0.sub(1).mul(-3).exp(), x);
+            assertFused(manager, x0.abs().rdiv(2).div(4), x);
+            assertFused(manager, x0.mul(x0).sigmoid().softrelu(), x);
+        }
+    }
+
+    @Test
+    public void testReuseAcrossShapes() {
+        try (NDManager manager = NDManager.newBaseManager()) {
+            NDExpression expression = NDExpression.input(0).mul(3).rsub(2).relu();
+            NDArray matrix = manager.create(new float[] {-1f, 0f, 1f, 2f}, new Shape(2, 2));
+            NDArray vector = manager.create(new float[] {0.1f, 0.5f, 1f});
+
+            // the same CachedOp runs on inputs of different shapes
+            assertFused(manager, expression, matrix);
+            assertFused(manager, expression, vector);
+            assertFused(manager, expression, matrix);
+        }
+    }
+
+    private static void assertFused(NDManager manager, NDExpression expression, NDArray... inputs) {
+        NDArray actual = manager.evaluate(expression, inputs);
+        NDArray expected = expression.evalEagerly(inputs);
+        Assertions.assertAlmostEquals(actual, expected);
+    }
+}
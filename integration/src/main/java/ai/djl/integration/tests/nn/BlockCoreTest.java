@@ -24,6 +24,9 @@ import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.LayoutType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.nn.Block;
+import ai.djl.nn.Blocks;
+import ai.djl.nn.HybridBlock;
+import ai.djl.nn.InferenceOptimizer;
 import ai.djl.nn.LambdaBlock;
 import ai.djl.nn.ParallelBlock;
 import ai.djl.nn.Parameter;
@@ -39,6 +42,7 @@ import ai.djl.nn.recurrent.GRU;
 import ai.djl.nn.recurrent.LSTM;
 import ai.djl.nn.recurrent.RNN;
 import ai.djl.training.DefaultTrainingConfig;
+import ai.djl.training.GradientCollector;
 import ai.djl.training.ParameterStore;
 import ai.djl.training.Trainer;
 import ai.djl.training.TrainingConfig;
@@ -507,6 +511,87 @@ public class BlockCoreTest {
         }
     }
 
+    @Test
+    public void testHybridBlock() throws IOException, MalformedModelException {
+        TrainingConfig config =
+                new DefaultTrainingConfig(Loss.l2Loss()).optInitializer(Initializer.ONES);
+        HybridBlock block = new HybridBlock(newHybridTestBlock());
+        Assert.assertEquals(block.getParameters().size(), 4);
+
+        Shape inputShape = new Shape(1, 3);
+        try (Model model = Model.newInstance();
+                Model referenceModel = Model.newInstance()) {
+            model.setBlock(block);
+            SequentialBlock reference = newHybridTestBlock();
+            referenceModel.setBlock(reference);
+
+            try (Trainer trainer = model.newTrainer(config);
+                    Trainer referenceTrainer = referenceModel.newTrainer(config)) {
+                trainer.initialize(inputShape);
+                NDManager manager = trainer.getManager();
+                NDArray expected = manager.create(new float[] {975, 975, 975}, new Shape(1, 3));
+                // the first forward is traced, the following ones run the compiled graph
+                for (int i = 0; i < 3; ++i) {
+                    NDArray data = manager.ones(inputShape);
+                    NDArray result = trainer.forward(new NDList(data)).singletonOrThrow();
+                    Assertions.assertAlmostEquals(result, expected);
+                }
+                Assert.assertEquals(block.getCompiledGraphCount(), 1);
+
+                // training mode gets its own graph, which must compute the same gradients
+                NDArray data = manager.ones(inputShape);
+                NDArray[] gradients = new NDArray[0];
+                for (int i = 0; i < 2; ++i) {
+                    gradients = computeGradients(trainer, block, data);
+                }
+                Assert.assertEquals(block.getCompiledGraphCount(), 2);
+
+                referenceTrainer.initialize(inputShape);
+                NDArray referenceData = referenceTrainer.getManager().ones(inputShape);
+                NDArray[] expectedGradients =
+                        computeGradients(referenceTrainer, reference, referenceData);
+                for (int i = 0; i < gradients.length; ++i) {
+                    Assertions.assertAlmostEquals(gradients[i], expectedGradients[i]);
+                }
+
+                testEncode(manager, block);
+            }
+        }
+    }
+
+    @Test
+    public void testInferenceOptimizer() {
+        TrainingConfig config =
+                new DefaultTrainingConfig(Loss.l2Loss()).optInitializer(Initializer.ONES);
+        SequentialBlock block = new SequentialBlock();
+        block.add(new Conv2D.Builder().setKernel(new Shape(2, 2)).setNumFilters(2).build());
+        block.add(new BatchNorm.Builder().build());
+        block.add(new Dropout.Builder().optProbability(.5f).build());
+        block.add(Blocks.identityBlock());
+
+        try (Model model = Model.newInstance()) {
+            model.setBlock(block);
+
+            try (Trainer trainer = model.newTrainer(config)) {
+                Shape inputShape = new Shape(1, 1, 3, 3);
+                trainer.initialize(inputShape);
+
+                NDManager manager = trainer.getManager();
+                NDArray data = manager.arange(9f).reshape(inputShape);
+                NDArray expected = trainer.forward(new NDList(data)).singletonOrThrow();
+
+                Block optimized = InferenceOptimizer.optimize(block);
+                Assert.assertSame(optimized, block);
+                Assert.assertEquals(block.getChildren().size(), 1);
+                NDArray result =
+                        optimized
+                                .forward(new ParameterStore(manager, false), new NDList(data))
+                                .singletonOrThrow();
+                Assertions.assertAlmostEquals(result, expected);
+            }
+        }
+    }
+
     @Test
     public void testParallelBlock() throws IOException, MalformedModelException {
         TrainingConfig config =
@@ -546,6 +631,26 @@ public class BlockCoreTest {
         }
     }
 
+    private static SequentialBlock newHybridTestBlock() {
+        SequentialBlock block = new SequentialBlock();
+        block.add(x -> new NDList(x.singletonOrThrow().mul(6.5f)));
+        block.add(new Linear.Builder().setOutChannels(10).build());
+        block.add(new Linear.Builder().setOutChannels(3).build());
+        return block;
+    }
+
+    private static NDArray[] computeGradients(Trainer trainer, Block block, NDArray data) {
+        try (GradientCollector collector = trainer.newGradientCollector()) {
+            NDArray result = trainer.forward(new NDList(data)).singletonOrThrow();
+            collector.backward(result);
+        }
+        return block.getParameters()
+                .values()
+                .stream()
+                .map(parameter -> parameter.getArray().getGradient())
+                .toArray(NDArray[]::new);
+    }
+
     private void testEncode(NDManager manager, Block block)
             throws IOException, MalformedModelException {
         PairList<String, Parameter> original = block.getParameters();
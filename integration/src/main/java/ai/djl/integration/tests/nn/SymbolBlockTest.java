@@ -16,6 +16,7 @@ import ai.djl.MalformedModelException;
 import ai.djl.Model;
 import ai.djl.integration.util.Assertions;
 import ai.djl.mxnet.engine.MxGradientCollector;
+import ai.djl.mxnet.engine.MxSymbolBlock;
 import ai.djl.mxnet.zoo.MxModelZoo;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDArrays;
@@ -61,6 +62,37 @@ public class SymbolBlockTest {
         }
     }
 
+    @Test
+    public void testShapeBuckets()
+            throws IOException, ModelNotFoundException, MalformedModelException {
+        Map<String, String> criteria = new ConcurrentHashMap<>();
+        try (Model model = MxModelZoo.MLP.loadModel(criteria)) {
+            NDManager manager = model.getNDManager();
+
+            ParameterStore parameterStore = new ParameterStore(manager, false);
+
+            MxSymbolBlock block = (MxSymbolBlock) model.getBlock();
+            NDArray arr = manager.ones(new Shape(3, 28, 28));
+            NDArray expected = block.forward(parameterStore, new NDList(arr)).singletonOrThrow();
+
+            block.setShapeBuckets(2, 4, 8);
+            NDArray result = block.forward(parameterStore, new NDList(arr)).singletonOrThrow();
+            Assert.assertEquals(result.getShape(), new Shape(3, 10));
+            Assertions.assertAlmostEquals(result, expected);
+
+            arr = manager.ones(new Shape(5, 28, 28));
+            result = block.forward(parameterStore, new NDList(arr)).singletonOrThrow();
+            Assert.assertEquals(result.getShape(), new Shape(5, 10));
+
+            // an output declared without batch axis keeps the padded rows
+            block.setBatchIndices(new int[] {0}, new int[0]);
+            arr = manager.ones(new Shape(3, 28, 28));
+            result = block.forward(parameterStore, new NDList(arr)).singletonOrThrow();
+            Assert.assertEquals(result.getShape(), new Shape(4, 10));
+            Assertions.assertAlmostEquals(result.get("0:3"), expected);
+        }
+    }
+
     @Test
     public void trainWithNewParam()
             throws IOException, ModelNotFoundException, MalformedModelException {
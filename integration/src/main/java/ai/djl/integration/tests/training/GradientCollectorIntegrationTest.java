@@ -12,14 +12,17 @@
  */
 package ai.djl.integration.tests.training;
 
+import ai.djl.Device;
 import ai.djl.Model;
 import ai.djl.integration.util.Assertions;
 import ai.djl.mxnet.engine.MxGradientCollector;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDArrays;
+import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
+import ai.djl.nn.Parameter;
 import ai.djl.nn.core.Linear;
 import ai.djl.training.DefaultTrainingConfig;
 import ai.djl.training.Trainer;
@@ -61,21 +64,104 @@ public class GradientCollectorIntegrationTest {
 
     @Test
     public void testTrain() {
-        int numOfData = 1000;
-        int batchSize = 10;
-        int epochs = 10;
+        train(newConfig());
+    }
+
+    @Test
+    public void testTrainThreadPerDevice() {
+        // two CPU contexts, so that the splits are trained concurrently
+        Device[] devices = {Device.cpu(0), Device.cpu(1)};
+        train(newConfig().optDevices(devices).optThreadPerDevice(true));
+    }
+
+    @Test
+    public void testTrainNativeParameterServer() {
+        Device[] devices = {Device.cpu(0), Device.cpu(1)};
+        train(newConfig().optDevices(devices).optParameterServerType("device"));
+    }
 
+    @Test
+    public void testTrainGradientAccumulation() {
+        // the parameters are updated once every two batches with the summed gradients
+        train(newConfig().optGradientAccumulation(2));
+    }
+
+    @Test
+    public void testGradientAccumulationStep() {
+        float learningRate = .03f;
+        try (Model model = Model.newInstance()) {
+            Linear block = new Linear.Builder().setOutChannels(1).build();
+            model.setBlock(block);
+
+            NDManager manager = model.getNDManager();
+            NDArray data = manager.create(new float[] {1, 2, 3, -1}, new Shape(2, 2));
+            NDArray label = manager.create(new float[] {1, 2}, new Shape(2, 1));
+
+            Parameter weight = block.getDirectParameters().get(0);
+            Parameter bias = block.getDirectParameters().get(1);
+            try (Trainer trainer = model.newTrainer(newConfig().optGradientAccumulation(2))) {
+                trainer.initialize(new Shape(1, 2));
+                NDArray weight0 = weight.getArray().duplicate();
+                NDArray bias0 = bias.getArray().duplicate();
+
+                trainBatch(trainer, data.get("0:1"), label.get("0:1"));
+                trainer.step();
+                Assertions.assertAlmostEquals(weight.getArray(), weight0);
+                Assertions.assertAlmostEquals(bias.getArray(), bias0);
+
+                trainBatch(trainer, data.get("1:2"), label.get("1:2"));
+                trainer.step();
+                // the L2 loss gradient of a single sample is (prediction - label) * input
+                NDArray residual = data.dot(weight0.transpose()).add(bias0).sub(label);
+                NDArray weightGrad = residual.transpose().dot(data);
+                NDArray biasGrad = residual.sum(new int[] {0});
+                Assertions.assertAlmostEquals(
+                        weight.getArray(), weight0.sub(weightGrad.mul(learningRate)));
+                Assertions.assertAlmostEquals(
+                        bias.getArray(), bias0.sub(biasGrad.mul(learningRate)));
+            }
+
+            // the model must not keep adding to its gradients once the trainer is closed
+            try (Trainer trainer = model.newTrainer(newConfig())) {
+                NDArray input = data.get("0:1");
+                NDArray residual =
+                        input.dot(weight.getArray().transpose())
+                                .add(bias.getArray())
+                                .sub(label.get("0:1"));
+                trainBatch(trainer, input, label.get("0:1"));
+                trainBatch(trainer, input, label.get("0:1"));
+                Assertions.assertAlmostEquals(
+                        weight.getArray().getGradient(), residual.transpose().dot(input));
+            }
+        }
+    }
+
+    private static DefaultTrainingConfig newConfig() {
         Optimizer optimizer =
                 new Sgd.Builder()
                         .setLearningRateTracker(LearningRateTracker.fixedLearningRate(.03f))
                         .build();
 
-        TrainingConfig config =
-                new DefaultTrainingConfig(Loss.l2Loss())
-                        .optInitializer(Initializer.ONES)
-                        .optOptimizer(optimizer);
+        return new DefaultTrainingConfig(Loss.l2Loss())
+                .optInitializer(Initializer.ONES)
+                .optOptimizer(optimizer);
+    }
 
-        try (Model model = Model.newInstance()) {
+    private static void trainBatch(Trainer trainer, NDArray data, NDArray label) {
+        NDManager manager = trainer.getManager().newSubManager();
+        NDList batchData = new NDList(data.duplicate());
+        NDList batchLabels = new NDList(label.duplicate());
+        try (Batch batch = new Batch(manager, batchData, batchLabels)) {
+            trainer.trainBatch(batch);
+        }
+    }
+
+    private static void train(TrainingConfig config) {
+        int numOfData = 1000;
+        int batchSize = 10;
+        int epochs = 10;
+
+        try (Model model = Model.newInstance(config.getDevices()[0])) {
             Linear block = new Linear.Builder().setOutChannels(1).build();
             model.setBlock(block);
 
@@ -111,6 +111,35 @@ public class OptimizerTest {
         }
     }
 
+    @Test
+    public void testSgdUpdateAll() {
+        try (NDManager manager = NDManager.newBaseManager()) {
+            int numWeights = 3;
+            String[] ids = new String[numWeights];
+            NDArray[] weights = new NDArray[numWeights];
+            NDArray[] expected = new NDArray[numWeights];
+            NDArray[] grads = new NDArray[numWeights];
+            for (int i = 0; i < numWeights; i++) {
+                ids[i] = String.valueOf(i);
+                weights[i] = manager.randomNormal(new Shape(2, i + 1));
+                expected[i] = weights[i].duplicate();
+                grads[i] = manager.randomNormal(new Shape(2, i + 1));
+            }
+
+            Optimizer fused = newSgdWithMomentum();
+            Optimizer single = newSgdWithMomentum();
+            for (int n = 0; n < 3; n++) {
+                fused.updateAll(ids, weights, grads);
+                for (int i = 0; i < numWeights; i++) {
+                    single.update(ids[i], expected[i], grads[i]);
+                }
+            }
+            for (int i = 0; i < numWeights; i++) {
+                Assertions.assertAlmostEquals(weights[i], expected[i]);
+            }
+        }
+    }
+
     @Test
     public void testNag() {
         Optimizer optim =
@@ -177,6 +206,14 @@ public class OptimizerTest {
         }
     }
 
+    private static Optimizer newSgdWithMomentum() {
+        return new Sgd.Builder()
+                .setLearningRateTracker(LearningRateTracker.fixedLearningRate(0.1f))
+                .optMomentum(0.9f)
+                .optWeightDecays(0.01f)
+                .build();
+    }
+
     private NDArray runOptimizer(NDManager manager, Trainer trainer, Block block, int batchSize) {
         NDArray data = manager.ones(new Shape(batchSize, CHANNELS)).mul(2);
         NDArray label = data.mul(2);
@@ -30,6 +30,15 @@ public class ParameterStoreTest {
 
     @Test
     public void testParameterStore() {
+        testParameterStore(false);
+    }
+
+    @Test
+    public void testParameterStoreBatch() {
+        testParameterStore(true);
+    }
+
+    private void testParameterStore(boolean batch) {
         try (Model model = Model.newInstance()) {
             NDManager manager = model.getNDManager();
             int numGpus = Device.getGpuCount();
@@ -78,7 +87,16 @@ public class ParameterStoreTest {
                 for (int i = 0; i < numWeights; i++) {
                     ps.init(String.valueOf(i), new NDArray[] {weights[i][0]});
                 }
+                String[] keys = new String[numWeights];
+                for (int i = 0; i < numWeights; i++) {
+                    keys[i] = String.valueOf(i);
+                }
                 for (int n = 0; n < numUpdates; n++) {
+                    if (batch) {
+                        ps.push(keys, grads, 0);
+                        ps.pull(keys, weights, 0);
+                        continue;
+                    }
                     // push
                     for (int i = 0; i < numWeights; i++) {
                         ps.push(String.valueOf(i), grads[i], -i);
@@ -23,8 +23,11 @@ import ai.djl.training.ParameterStore;
 import ai.djl.util.Pair;
 import ai.djl.util.PairList;
 import com.sun.jna.Pointer;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +50,7 @@ public class CachedOp extends NativeResource {
     private Map<String, Integer> dataIndicesMap;
     private List<Integer> paramIndices;
     private MxNDManager manager;
+    private Map<ParameterStore, Map<Device, MxNDArray[]>> parameterCache;
 
     /**
      * Creates an instance of {@link CachedOp}.
@@ -71,6 +75,7 @@ public class CachedOp extends NativeResource {
         this.dataIndices = dataIndices;
         this.paramIndices = paramIndices;
         this.dataIndicesMap = dataIndices.toMap();
+        parameterCache = Collections.synchronizedMap(new WeakHashMap<>());
         // holds all parameter and data NDArray values, final inputs to CachedOp
         this.manager = manager;
         manager.attach(getUid(), this);
@@ -84,24 +89,15 @@ public class CachedOp extends NativeResource {
      * @return an {@link NDList}
      */
     public NDList forward(ParameterStore parameterStore, NDList data) {
-        // reset the input data index at the beginning
-        MxNDArray[] allInputsNDArray = new MxNDArray[parameters.size()];
-        // for unit test purpose, we export the current one to global
-        this.debugInputs = allInputsNDArray;
         // check device of input
         Device device = data.head().getDevice();
         // get the manager of the data
         MxNDManager inputManager = (MxNDManager) data.head().getManager();
 
-        // fill allInputsNDArray with parameter values on correct device
-        for (int index : paramIndices) {
-            Parameter parameter = parameters.get(index);
-            MxNDArray value = (MxNDArray) parameterStore.getValue(parameter, device);
-            if (value == null) {
-                throw new NullPointerException("Failed to find parameter from parameterStore");
-            }
-            allInputsNDArray[index] = value;
-        }
+        // start from the parameter values on correct device
+        MxNDArray[] allInputsNDArray = getParameterValues(parameterStore, device);
+        // for unit test purpose, we export the current one to global
+        this.debugInputs = allInputsNDArray;
 
         // fill allInputsNDArray with data values
         int index = 0;
@@ -134,6 +130,39 @@ public class CachedOp extends NativeResource {
         return new NDList(result);
     }
 
+    /**
+     * Returns a new input array filled with the parameter values on the device.
+     *
+     * <p>{@link ParameterStore} keeps returning the same mirrored {@link NDArray} for a parameter
+     * and device, so the lookups are only done once per {@link ParameterStore} and device.
+     *
+     * @param parameterStore the parameterStore
+     * @param device the device of the input data
+     * @return a new array with the parameter values at their locations
+     */
+    private MxNDArray[] getParameterValues(ParameterStore parameterStore, Device device) {
+        Map<Device, MxNDArray[]> byDevice =
+                parameterCache.computeIfAbsent(parameterStore, k -> new ConcurrentHashMap<>());
+        MxNDArray[] values =
+                byDevice.computeIfAbsent(
+                        device,
+                        k -> {
+                            MxNDArray[] array = new MxNDArray[parameters.size()];
+                            for (int index : paramIndices) {
+                                Parameter parameter = parameters.get(index);
+                                MxNDArray value =
+                                        (MxNDArray) parameterStore.getValue(parameter, device);
+                                if (value == null) {
+                                    throw new NullPointerException(
+                                            "Failed to find parameter from parameterStore");
+                                }
+                                array[index] = value;
+                            }
+                            return array;
+                        });
+        return values.clone();
+    }
+
     /**
      * Gets an input NDArray. For unit tests only.
      *
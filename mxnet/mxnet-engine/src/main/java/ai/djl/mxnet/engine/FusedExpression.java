@@ -0,0 +1,304 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import ai.djl.mxnet.jna.JnaUtils;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDExpression;
+import ai.djl.ndarray.types.SparseFormat;
+import com.sun.jna.Pointer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code FusedExpression} evaluates an {@link NDExpression} with a single call to a CachedOp built
+ * from the expression (internal).
+ *
+ * <p>The expression is turned into a symbol graph of MXNet numpy operators, from which a CachedOp
+ * is created once per distinct expression and device. MXNet plans the memory of the intermediate
+ * results of the graph, and fuses the element-wise operators into one kernel where the backend
+ * supports it.
+ *
+ * <p>The CachedOps are built without static memory allocation, so that several threads can run
+ * them at the same time. At most {@value #MAX_CACHED} of them are kept, the least recently used one
+ * is freed when another one is needed.
+ */
+final class FusedExpression {
+
+    private static final int MAX_CACHED = 256;
+    private static final String[] NO_FLAGS = {};
+
+    private static final Map<String, FusedExpression> CACHE = new LruCache();
+
+    private Pointer cachedOp;
+    private int[] inputOrder;
+    private int users;
+    private boolean evicted;
+
+    private FusedExpression(Pointer cachedOp, int[] inputOrder) {
+        this.cachedOp = cachedOp;
+        this.inputOrder = inputOrder;
+    }
+
+    /**
+     * Evaluates an {@link NDExpression}.
+     *
+     * @param manager the manager to attach the result to
+     * @param expression the expression to evaluate
+     * @param inputs the inputs of the expression
+     * @return the result of the expression
+     */
+    static NDArray evaluate(MxNDManager manager, NDExpression expression, NDArray[] inputs) {
+        if (!isWorthFusing(expression) || hasSparseInput(inputs)) {
+            return expression.evalEagerly(inputs);
+        }
+        String key = manager.getDevice() + ":" + expression;
+        FusedExpression fused;
+        synchronized (CACHE) {
+            fused = CACHE.computeIfAbsent(key, k -> compile(expression));
+            fused.acquire();
+        }
+        try {
+            return fused.invoke(manager, inputs);
+        } finally {
+            fused.release();
+        }
+    }
+
+    /** Frees all the cached operators, it is called when the engine shuts down. */
+    static void freeAll() {
+        synchronized (CACHE) {
+            for (FusedExpression fused : CACHE.values()) {
+                fused.evict();
+            }
+            CACHE.clear();
+        }
+    }
+
+    private NDArray invoke(MxNDManager manager, NDArray[] inputs) {
+        MxNDArray[] args = new MxNDArray[inputOrder.length];
+        for (int i = 0; i < args.length; ++i) {
+            args[i] = (MxNDArray) inputs[inputOrder[i]];
+        }
+        return JnaUtils.cachedOpInvoke(manager, cachedOp, args)[0];
+    }
+
+    private synchronized void acquire() {
+        ++users;
+    }
+
+    private synchronized void release() {
+        if (--users == 0 && evicted) {
+            free();
+        }
+    }
+
+    private synchronized void evict() {
+        evicted = true;
+        if (users == 0) {
+            free();
+        }
+    }
+
+    private void free() {
+        if (cachedOp != null) {
+            JnaUtils.freeCachedOp(cachedOp);
+            cachedOp = null;
+        }
+    }
+
+    private static boolean isWorthFusing(NDExpression expression) {
+        // a single operator on the inputs gains nothing from a CachedOp
+        for (NDExpression operand : expression.getOperands()) {
+            if (operand.getOp() != NDExpression.Op.INPUT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSparseInput(NDArray[] inputs) {
+        for (NDArray input : inputs) {
+            if (input.getSparseFormat() != SparseFormat.DENSE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static FusedExpression compile(NDExpression expression) {
+        GraphBuilder builder = new GraphBuilder();
+        int head = builder.add(expression);
+        Pointer symbol = JnaUtils.createSymbolFromJson(builder.toJson(head));
+        try {
+            Pointer cachedOp = JnaUtils.createCachedOp(symbol, NO_FLAGS, NO_FLAGS);
+            int[] inputOrder = builder.inputs.stream().mapToInt(Integer::intValue).toArray();
+            return new FusedExpression(cachedOp, inputOrder);
+        } finally {
+            JnaUtils.freeSymbol(symbol);
+        }
+    }
+
+    /** A map of the most recently used expressions that frees the operators it evicts. */
+    private static final class LruCache extends LinkedHashMap<String, FusedExpression> {
+
+        private static final long serialVersionUID = 1L;
+
+        LruCache() {
+            super(16, 0.75f, true);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FusedExpression> eldest) {
+            if (size() > MAX_CACHED) {
+                eldest.getValue().evict();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** Writes an {@link NDExpression} as the JSON of an MXNet symbol graph. */
+    private static final class GraphBuilder {
+
+        List<String> nodes = new ArrayList<>();
+        List<Integer> argNodes = new ArrayList<>();
+        // input indices in the order of the variables, which is the order of the CachedOp inputs
+        List<Integer> inputs = new ArrayList<>();
+        Map<Integer, Integer> inputNodes = new HashMap<>();
+        Map<NDExpression, Integer> visited = new IdentityHashMap<>();
+
+        int add(NDExpression expression) {
+            Integer id = visited.get(expression);
+            if (id != null) {
+                return id;
+            }
+            if (expression.getOp() == NDExpression.Op.INPUT) {
+                id = inputNodes.get(expression.getIndex());
+                if (id == null) {
+                    id = nodes.size();
+                    nodes.add(
+                            "{\"op\":\"null\",\"name\":\"x"
+                                    + expression.getIndex()
+                                    + "\",\"inputs\":[]}");
+                    argNodes.add(id);
+                    inputs.add(expression.getIndex());
+                    inputNodes.put(expression.getIndex(), id);
+                }
+            } else {
+                StringBuilder in = new StringBuilder();
+                for (NDExpression operand : expression.getOperands()) {
+                    if (in.length() > 0) {
+                        in.append(',');
+                    }
+                    in.append('[').append(add(operand)).append(",0,0]");
+                }
+                id = nodes.size();
+                nodes.add(
+                        "{\"op\":\""
+                                + getOpName(expression)
+                                + "\",\"name\":\"fused"
+                                + id
+                                + "\",\"attrs\":{"
+                                + getAttrs(expression)
+                                + "},\"inputs\":["
+                                + in
+                                + "]}");
+            }
+            visited.put(expression, id);
+            return id;
+        }
+
+        String toJson(int head) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"nodes\":[").append(String.join(",", nodes)).append("],\"arg_nodes\":[");
+            for (int i = 0; i < argNodes.size(); ++i) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(argNodes.get(i));
+            }
+            sb.append("],\"node_row_ptr\":[");
+            for (int i = 0; i <= nodes.size(); ++i) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(i);
+            }
+            sb.append("],\"heads\":[[")
+                    .append(head)
+                    .append(",0,0]],\"attrs\":{\"mxnet_version\":[\"int\",")
+                    .append(JnaUtils.getVersion())
+                    .append("]}}");
+            return sb.toString();
+        }
+
+        private static String getOpName(NDExpression expression) {
+            boolean scalar = expression.getScalar() != null;
+            boolean first = expression.isScalarFirst();
+            switch (expression.getOp()) {
+                case ADD:
+                    return scalar ? "_npi_add_scalar" : "_npi_add";
+                case SUBTRACT:
+                    if (scalar) {
+                        return first ? "_npi_rsubtract_scalar" : "_npi_subtract_scalar";
+                    }
+                    return "_npi_subtract";
+                case MULTIPLY:
+                    return scalar ? "_npi_multiply_scalar" : "_npi_multiply";
+                case DIVIDE:
+                    if (scalar) {
+                        return first ? "_npi_rtrue_divide_scalar" : "_npi_true_divide_scalar";
+                    }
+                    return "_npi_true_divide";
+                case NEGATIVE:
+                    return "_npi_negative";
+                case ABS:
+                    return "_npi_absolute";
+                case SQUARE:
+                    return "_npi_square";
+                case EXP:
+                    return "_npi_exp";
+                case LOG:
+                    return "_npi_log";
+                case RELU:
+                case SIGMOID:
+                case SOFTRELU:
+                    return "Activation";
+                default:
+                    throw new AssertionError("Unexpected operation: " + expression.getOp());
+            }
+        }
+
+        private static String getAttrs(NDExpression expression) {
+            if (expression.getScalar() != null) {
+                return "\"scalar\":\"" + expression.getScalar() + '"';
+            }
+            switch (expression.getOp()) {
+                case RELU:
+                    return "\"act_type\":\"relu\"";
+                case SIGMOID:
+                    return "\"act_type\":\"sigmoid\"";
+                case SOFTRELU:
+                    return "\"act_type\":\"softrelu\"";
+                default:
+                    return "";
+            }
+        }
+    }
+}
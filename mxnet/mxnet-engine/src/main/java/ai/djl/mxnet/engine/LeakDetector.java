@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import ai.djl.mxnet.jna.NativeResource;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@code LeakDetector} reports {@link NativeResource}s that are leaked (internal).
+ *
+ * <p>Leak detection is enabled with the "ai.djl.mxnet.leak_detection" system property. Every
+ * resource then records the batch in which it was created, and a sample of them, one in
+ * "ai.djl.mxnet.leak_detection.sample_rate" (1 by default), also records the stack trace of its
+ * creation. Two kinds of leaks are reported as warnings:
+ *
+ * <ul>
+ *   <li>resources that were released by the garbage collector instead of being closed
+ *   <li>resources that are still attached to one of the predictors or trainers of a model,
+ *       "ai.djl.mxnet.leak_detection.batches" (100 by default) batches after they were created
+ * </ul>
+ *
+ * <p>Resources attached directly to the model manager, such as parameters, are expected to live as
+ * long as the model and are never reported as attached leaks. Neither are the resources created
+ * during the first batches of a predictor or trainer, such as copies of the parameters and
+ * optimizer states, whatever the number of batches run before the predictor or trainer was
+ * created.
+ */
+public final class LeakDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeakDetector.class);
+
+    private static volatile boolean enabled;
+    private static volatile int sampleRate;
+    private static volatile int maxAge;
+
+    private static final AtomicLong ALLOCATIONS = new AtomicLong();
+    private static final AtomicLong BATCHES = new AtomicLong();
+    private static final AtomicLong LEAKS = new AtomicLong();
+    private static final List<WeakReference<MxNDManager>> MANAGERS = new CopyOnWriteArrayList<>();
+
+    static {
+        configure();
+    }
+
+    private LeakDetector() {}
+
+    /** Reads the leak detection settings from the system properties. */
+    static void configure() {
+        sampleRate = Math.max(1, Integer.getInteger("ai.djl.mxnet.leak_detection.sample_rate", 1));
+        maxAge = Math.max(1, Integer.getInteger("ai.djl.mxnet.leak_detection.batches", 100));
+        enabled = Boolean.getBoolean("ai.djl.mxnet.leak_detection");
+    }
+
+    /**
+     * Returns whether leak detection is enabled.
+     *
+     * @return whether leak detection is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records where a resource is being created.
+     *
+     * @param withStack whether to record the stack trace even if it is not sampled
+     * @return the {@link AllocationSite} of the resource, or {@code null} if leak detection is
+     *     disabled and {@code withStack} is {@code false}
+     */
+    public static AllocationSite capture(boolean withStack) {
+        if (enabled) {
+            boolean sampled = withStack || ALLOCATIONS.incrementAndGet() % sampleRate == 0;
+            return new AllocationSite(BATCHES.get(), sampled);
+        } else if (withStack) {
+            return new AllocationSite(BATCHES.get(), true);
+        }
+        return null;
+    }
+
+    /**
+     * Reports a resource that is released by the garbage collector instead of being closed.
+     *
+     * @param resource a description of the resource
+     * @param site the {@link AllocationSite} of the resource
+     */
+    public static void reportUnclosed(String resource, AllocationSite site) {
+        LEAKS.incrementAndGet();
+        if (site.stack == null) {
+            logger.warn("{} was not closed explicitly, created in batch {}", resource, site.batch);
+        } else {
+            logger.warn(
+                    "{} was not closed explicitly, created in batch {} at:",
+                    resource,
+                    site.batch,
+                    site.stack);
+        }
+    }
+
+    /**
+     * Returns the number of leaks reported since the JVM started.
+     *
+     * @return the number of leaks reported since the JVM started
+     */
+    public static long getLeakCount() {
+        return LEAKS.get();
+    }
+
+    /**
+     * Returns the number of batches completed since the JVM started.
+     *
+     * @return the number of batches completed since the JVM started
+     */
+    static long getBatch() {
+        return BATCHES.get();
+    }
+
+    /**
+     * Marks the end of a batch, and checks the watched managers for leaks every {@code
+     * ai.djl.mxnet.leak_detection.batches} batches.
+     */
+    static void batchCompleted() {
+        long batch = BATCHES.incrementAndGet();
+        if (enabled && batch % maxAge == 0) {
+            checkAttached(batch);
+        }
+    }
+
+    /**
+     * Watches the sub-managers of a long-lived manager for resources that stay attached.
+     *
+     * @param manager the manager to watch
+     */
+    static void watch(MxNDManager manager) {
+        if (enabled) {
+            MANAGERS.add(new WeakReference<>(manager));
+        }
+    }
+
+    private static void checkAttached(long batch) {
+        for (WeakReference<MxNDManager> ref : MANAGERS) {
+            MxNDManager manager = ref.get();
+            if (manager == null || !manager.isOpen()) {
+                MANAGERS.remove(ref);
+                continue;
+            }
+            List<MxNDManager> subManagers = new ArrayList<>();
+            manager.collectSubManagers(subManagers);
+            for (MxNDManager subManager : subManagers) {
+                List<NativeResource> resources = new ArrayList<>();
+                subManager.collectResources(resources);
+                checkAttached(resources, subManager.getCreationBatch(), batch);
+            }
+        }
+    }
+
+    private static void checkAttached(List<NativeResource> resources, long created, long batch) {
+        int age = maxAge;
+        for (NativeResource resource : resources) {
+            AllocationSite site = resource.getAllocationSite();
+            if (site == null
+                    || site.reported
+                    || site.batch - created < age
+                    || batch - site.batch < age) {
+                continue;
+            }
+            site.reported = true;
+            LEAKS.incrementAndGet();
+            String name = resource.getClass().getSimpleName() + " (" + resource.getUid() + ')';
+            if (site.stack == null) {
+                logger.warn(
+                        "{} created in batch {} is still attached after {} batches",
+                        name,
+                        site.batch,
+                        batch - site.batch);
+            } else {
+                logger.warn(
+                        "{} created in batch {} is still attached after {} batches, created at:",
+                        name,
+                        site.batch,
+                        batch - site.batch,
+                        site.stack);
+            }
+        }
+    }
+
+    /** The batch, and optionally the stack trace, in which a resource was created. */
+    public static final class AllocationSite {
+
+        long batch;
+        Exception stack;
+        volatile boolean reported;
+
+        AllocationSite(long batch, boolean withStack) {
+            this.batch = batch;
+            if (withStack) {
+                stack = new Exception("Allocation site");
+            }
+        }
+    }
+}
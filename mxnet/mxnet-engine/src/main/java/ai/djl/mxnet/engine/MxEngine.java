@@ -17,6 +17,8 @@ import ai.djl.Model;
 import ai.djl.engine.Engine;
 import ai.djl.mxnet.jna.JnaUtils;
 import ai.djl.ndarray.NDManager;
+import ai.djl.nn.Block;
+import ai.djl.nn.HybridGraph;
 
 /**
  * The {@code MxEngine} is an implementation of the {@link Engine} based on the <a
@@ -37,7 +39,13 @@ public class MxEngine extends Engine {
         JnaUtils.setNumpyMode(JnaUtils.NumpyMode.GLOBAL_ON);
 
         // Workaround MXNet shutdown crash issue
-        Runtime.getRuntime().addShutdownHook(new Thread(JnaUtils::waitAll)); // NOPMD
+        Runtime.getRuntime()
+                .addShutdownHook(
+                        new Thread( // NOPMD
+                                () -> {
+                                    JnaUtils.waitAll();
+                                    FusedExpression.freeAll();
+                                }));
     }
 
     /** {@inheritDoc} */
@@ -69,6 +77,17 @@ public class MxEngine extends Engine {
         return new MxModel(device);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The operators called by the block are traced into a symbol, which is executed by a
+     * CachedOp.
+     */
+    @Override
+    public HybridGraph newHybridGraph(Block block) {
+        return new MxHybridGraph(block);
+    }
+
     /** {@inheritDoc} */
     @Override
     public NDManager newBaseManager() {
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import ai.djl.Device;
+import ai.djl.mxnet.jna.GraphTracer;
+import ai.djl.mxnet.jna.JnaUtils;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.nn.Block;
+import ai.djl.nn.HybridGraph;
+import ai.djl.nn.Parameter;
+import ai.djl.training.ParameterStore;
+import ai.djl.util.PairList;
+import com.sun.jna.Pointer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@code MxHybridGraph} is the MXNet implementation of {@link HybridGraph}.
+ *
+ * <p>The operators called by the forward pass of the block are traced into a symbol, and the
+ * symbol is executed by a CachedOp, the same way as an {@link MxSymbolBlock}. Since the traced
+ * symbol is only valid for the shapes it was traced with, one CachedOp is kept for each
+ * combination of input shapes, data types and training mode, up to {@link #MAX_GRAPHS}.
+ */
+final class MxHybridGraph implements HybridGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(MxHybridGraph.class);
+
+    private static final int MAX_GRAPHS = 16;
+    private static final String[] STATIC_ALLOC = {"static_alloc", "static_shape"};
+    private static final String[] TRUE = {"1", "1"};
+    private static final String[] NO_FLAGS = {};
+
+    private Block block;
+    private Map<String, Graph> graphs;
+    private volatile boolean imperative;
+    private volatile boolean closed;
+
+    MxHybridGraph(Block block) {
+        this.block = block;
+        graphs = new ConcurrentHashMap<>();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NDList forward(
+            ParameterStore parameterStore, NDList inputs, PairList<String, Object> params) {
+        if (imperative || closed || (params != null && !params.isEmpty())) {
+            return block.forward(parameterStore, inputs, params);
+        }
+        String key = getKey(inputs);
+        if (key == null) {
+            return block.forward(parameterStore, inputs, params);
+        }
+        Graph graph = graphs.get(key);
+        if (graph != null) {
+            return graph.forward(parameterStore, inputs);
+        }
+        if (graphs.size() >= MAX_GRAPHS) {
+            return block.forward(parameterStore, inputs, params);
+        }
+        return trace(key, parameterStore, inputs);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getGraphCount() {
+        return graphs.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        closed = true;
+        for (Graph graph : graphs.values()) {
+            graph.close();
+        }
+        graphs.clear();
+    }
+
+    private NDList trace(String key, ParameterStore parameterStore, NDList inputs) {
+        Device device = inputs.head().getDevice();
+        Map<Pointer, String> variables = new HashMap<>();
+        Map<String, Integer> dataIndices = new HashMap<>();
+        Map<String, Parameter> parameters = new HashMap<>();
+        for (int i = 0; i < inputs.size(); ++i) {
+            String name = "data" + i;
+            variables.put(((MxNDArray) inputs.get(i)).getHandle(), name);
+            dataIndices.put(name, i);
+        }
+        for (Parameter parameter : block.getParameters().values()) {
+            MxNDArray value = (MxNDArray) parameterStore.getValue(parameter, device);
+            String name = "param" + parameters.size();
+            if (variables.putIfAbsent(value.getHandle(), name) == null) {
+                parameters.put(name, parameter);
+            }
+        }
+
+        NDList outputs;
+        String json;
+        try (GraphTracer tracer = GraphTracer.start(variables)) {
+            outputs = block.forward(parameterStore, inputs, null);
+            json = tracer.toJson(outputs);
+            if (json == null) {
+                logger.warn(
+                        "{} runs imperatively, it cannot be traced: {}",
+                        block.getClass().getSimpleName(),
+                        tracer.getFailure());
+                imperative = true;
+                return outputs;
+            }
+        }
+
+        Graph graph = compile(json, dataIndices, parameters);
+        synchronized (this) {
+            if (closed || graphs.putIfAbsent(key, graph) != null) {
+                // raced with another thread tracing the same shapes, or with close()
+                graph.close();
+            }
+        }
+        return outputs;
+    }
+
+    private static Graph compile(
+            String json, Map<String, Integer> dataIndices, Map<String, Parameter> parameters) {
+        Pointer symbol = JnaUtils.createSymbolFromJson(json);
+        try {
+            // CachedOp takes its inputs in the order of the symbol inputs
+            String[] names = JnaUtils.listSymbolNames(symbol);
+            int[] inputIndices = new int[names.length];
+            List<Parameter> inputParameters = new ArrayList<>(names.length);
+            for (int i = 0; i < names.length; ++i) {
+                Integer index = dataIndices.get(names[i]);
+                inputIndices[i] = index == null ? -1 : index;
+                inputParameters.add(parameters.get(names[i]));
+            }
+            Pointer cachedOp;
+            if (JnaUtils.useThreadSafePredictor()) {
+                // thread safe CachedOp does not support static memory planning
+                cachedOp = JnaUtils.createCachedOp(symbol, NO_FLAGS, NO_FLAGS);
+            } else {
+                cachedOp = JnaUtils.createCachedOp(symbol, STATIC_ALLOC, TRUE);
+            }
+            return new Graph(cachedOp, inputIndices, inputParameters);
+        } finally {
+            JnaUtils.freeSymbol(symbol);
+        }
+    }
+
+    private static String getKey(NDList inputs) {
+        if (inputs.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(JnaUtils.autogradIsTraining() ? "train" : "predict");
+        for (NDArray array : inputs) {
+            if (array.getSparseFormat() != SparseFormat.DENSE) {
+                return null;
+            }
+            sb.append(';').append(array.getDataType()).append(array.getShape());
+        }
+        return sb.toString();
+    }
+
+    /** A CachedOp for one combination of input shapes, and the values it takes as inputs. */
+    private static final class Graph {
+
+        private Pointer cachedOp;
+        // the index of the data input, or -1 for a parameter
+        private int[] inputIndices;
+        private List<Parameter> parameters;
+        private Map<ParameterStore, Map<Device, MxNDArray[]>> parameterCache;
+
+        Graph(Pointer cachedOp, int[] inputIndices, List<Parameter> parameters) {
+            this.cachedOp = cachedOp;
+            this.inputIndices = inputIndices;
+            this.parameters = parameters;
+            parameterCache = Collections.synchronizedMap(new WeakHashMap<>());
+        }
+
+        NDList forward(ParameterStore parameterStore, NDList inputs) {
+            MxNDArray[] args = getParameterValues(parameterStore, inputs.head().getDevice());
+            for (int i = 0; i < inputIndices.length; ++i) {
+                if (inputIndices[i] >= 0) {
+                    args[i] = (MxNDArray) inputs.get(inputIndices[i]);
+                }
+            }
+            MxNDManager manager = (MxNDManager) inputs.head().getManager();
+            return new NDList(JnaUtils.cachedOpInvoke(manager, cachedOp, args));
+        }
+
+        /**
+         * Returns a new input array filled with the parameter values on the device.
+         *
+         * @param parameterStore the parameterStore
+         * @param device the device of the input data
+         * @return a new array with the parameter values at their locations
+         */
+        private MxNDArray[] getParameterValues(ParameterStore parameterStore, Device device) {
+            Map<Device, MxNDArray[]> byDevice =
+                    parameterCache.computeIfAbsent(parameterStore, k -> new ConcurrentHashMap<>());
+            MxNDArray[] values =
+                    byDevice.computeIfAbsent(
+                            device,
+                            k -> {
+                                MxNDArray[] array = new MxNDArray[inputIndices.length];
+                                for (int i = 0; i < array.length; ++i) {
+                                    Parameter parameter = parameters.get(i);
+                                    if (parameter != null) {
+                                        array[i] =
+                                                (MxNDArray)
+                                                        parameterStore.getValue(parameter, device);
+                                    }
+                                }
+                                return array;
+                            });
+            return values.clone();
+        }
+
+        void close() {
+            JnaUtils.freeCachedOp(cachedOp);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import ai.djl.ndarray.internal.NDArrayEx;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.training.GradReq;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.function.Predicate;
@@ -46,6 +47,12 @@ public class MxMatrix implements Matrix {
         array.attachGradient();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void attachGradient(GradReq gradReq) {
+        array.attachGradient(gradReq);
+    }
+
     /** {@inheritDoc} */
     @Override
     public NDArray getGradient() {
@@ -370,6 +377,12 @@ public class MxMatrix implements Matrix {
         return array.toByteBuffer();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ByteBuffer asByteBufferView() {
+        return array.asByteBufferView();
+    }
+
     /** {@inheritDoc} */
     @Override
     public void set(Buffer data) {
@@ -15,7 +15,9 @@ package ai.djl.mxnet.engine;
 import ai.djl.Device;
 import ai.djl.MalformedModelException;
 import ai.djl.Model;
+import ai.djl.engine.EngineException;
 import ai.djl.inference.Predictor;
+import ai.djl.metric.Metrics;
 import ai.djl.mxnet.jna.JnaUtils;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
@@ -27,6 +29,8 @@ import ai.djl.nn.Parameter;
 import ai.djl.training.Trainer;
 import ai.djl.training.TrainingConfig;
 import ai.djl.training.initializer.Initializer;
+import ai.djl.translate.NoopTranslator;
+import ai.djl.translate.TranslateException;
 import ai.djl.translate.Translator;
 import ai.djl.util.Pair;
 import ai.djl.util.PairList;
@@ -44,6 +48,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -65,6 +70,11 @@ public class MxModel implements Model {
 
     private static final int MODEL_VERSION = 1;
 
+    private static final String[] CACHED_OP_BOOLEAN_FLAGS = {"static_alloc", "static_shape"};
+    private static final String[] CACHED_OP_INTEGER_FLAGS = {
+        "forward_bulk_size", "backward_bulk_size", "inline_limit"
+    };
+
     private Path modelDir;
     private String modelName;
     private MxNDManager manager;
@@ -86,6 +96,7 @@ public class MxModel implements Model {
         dataType = DataType.FLOAT32;
         properties = new ConcurrentHashMap<>();
         manager = MxNDManager.getSystemManager().newSubManager(device);
+        LeakDetector.watch(manager);
         first = new AtomicBoolean(true);
     }
 
@@ -102,6 +113,25 @@ public class MxModel implements Model {
      * model.load(modelPath, "squeezenet", options);
      * </pre>
      *
+     * <p>The following options are passed to the MXNet CachedOp that runs a loaded {@link
+     * MxSymbolBlock}:
+     *
+     * <ul>
+     *   <li>static_alloc - "true" (default) to allocate memory once and reuse it across calls
+     *   <li>static_shape - "true" (default) to plan memory once for fixed input shapes
+     *   <li>forward_bulk_size - the number of forward operators to execute in one engine push
+     *   <li>backward_bulk_size - the number of backward operators to execute in one engine push
+     *   <li>inline_limit - the maximum number of operators to inline in a subgraph
+     * </ul>
+     *
+     * <p>Static allocation lets MXNet reuse the output buffers between calls, which is the best
+     * setting for inference with fixed input shapes. Disable it if the input shapes change a lot.
+     *
+     * <p>The "backend" option partitions the loaded symbol for an MXNet subgraph backend, see
+     * {@link MxSymbolBlock#optimizeFor(String)}. For example, "MKLDNN" fuses convolutions with the
+     * following batch norm, activation and sum on CPU. The option is ignored with a warning if the
+     * MXNet library is built without the backend.
+     *
      * @param modelPath the directory of the model
      * @param modelName the name/prefix of the model
      * @param options load model options, see documentation for the specific engine
@@ -123,8 +153,14 @@ public class MxModel implements Model {
             // TODO: change default name "data" to model-specific one
             block = new MxSymbolBlock(manager, symbol);
         }
+        if (block instanceof MxSymbolBlock) {
+            setCachedOpFlags((MxSymbolBlock) block, options);
+        }
         loadParameters(modelName, options);
         // TODO: Check if Symbol has all names that params file have
+        if (block instanceof MxSymbolBlock && options != null && options.get("backend") != null) {
+            optimizeFor((MxSymbolBlock) block, options.get("backend"));
+        }
     }
 
     /** {@inheritDoc} */
@@ -170,6 +206,11 @@ public class MxModel implements Model {
 
             block.saveParameters(dos);
         }
+        if (block instanceof MxSymbolBlock) {
+            // the symbol may have been modified after loading, e.g. by InferenceOptimizer
+            Path symbolFile = modelPath.resolve(modelName + "-symbol.json");
+            ((MxSymbolBlock) block).getSymbol().save(symbolFile.toAbsolutePath().toString());
+        }
         this.modelName = modelName;
         modelDir = modelPath.toAbsolutePath();
     }
@@ -209,6 +250,48 @@ public class MxModel implements Model {
         return new MxPredictor<>(this, translator, shouldCopyParameters);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The predictor uses the model parameters without copying them, and does not count as the
+     * first predictor of the model.
+     */
+    @Override
+    public <I, O> Predictor<I, O> newSharedPredictor(Translator<I, O> translator) {
+        return new MxPredictor<>(this, translator, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The warm-up predictor uses the model parameters without copying them and does not count
+     * as the first predictor of the model.
+     */
+    @Override
+    public void warmup(List<PairList<String, Shape>> inputShapes, Metrics metrics)
+            throws TranslateException {
+        try (Predictor<NDList, NDList> predictor =
+                        new MxPredictor<>(this, new NoopTranslator(), false);
+                NDManager ndManager = manager.newSubManager()) {
+            for (PairList<String, Shape> shapes : inputShapes) {
+                NDList input = new NDList(shapes.size());
+                for (Pair<String, Shape> pair : shapes) {
+                    NDArray array = ndManager.zeros(pair.getValue(), dataType);
+                    array.setName(pair.getKey());
+                    input.add(array);
+                }
+                long begin = System.nanoTime();
+                NDList output = predictor.predict(input);
+                long duration = System.nanoTime() - begin;
+                output.close();
+                input.close();
+                if (metrics != null) {
+                    metrics.addMetric("Warmup", duration, "nano");
+                }
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setDataType(DataType dataType) {
@@ -350,6 +433,56 @@ public class MxModel implements Model {
         super.finalize();
     }
 
+    private void optimizeFor(MxSymbolBlock symbolBlock, String backend) {
+        // MKLDNN_QUANTIZE is provided by MKLDNN, TensorRT by TENSORRT
+        String feature = backend.split("_", 2)[0].toUpperCase(Locale.ROOT);
+        if (!JnaUtils.getFeatures().contains(feature)) {
+            logger.warn(
+                    "MXNet is built without {}, {} is loaded without the {} backend.",
+                    feature,
+                    modelName,
+                    backend);
+            return;
+        }
+        List<String> subgraphs;
+        try {
+            subgraphs = symbolBlock.optimizeFor(backend);
+        } catch (EngineException e) {
+            logger.warn("Failed to partition " + modelName + " for " + backend + '.', e);
+            return;
+        }
+        logger.info(
+                "Partitioned {} for {}: {} fused subgraphs", modelName, backend, subgraphs.size());
+        for (String subgraph : subgraphs) {
+            logger.info("Fused subgraph: {}", subgraph);
+        }
+    }
+
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private void setCachedOpFlags(MxSymbolBlock symbolBlock, Map<String, String> options) {
+        Map<String, String> flags = new LinkedHashMap<>(symbolBlock.getCachedOpFlags());
+        if (options != null) {
+            for (String key : CACHED_OP_BOOLEAN_FLAGS) {
+                String value = options.get(key);
+                if (value != null) {
+                    flags.put(key, Boolean.parseBoolean(value) || "1".equals(value) ? "1" : "0");
+                }
+            }
+            for (String key : CACHED_OP_INTEGER_FLAGS) {
+                String value = options.get(key);
+                if (value != null) {
+                    flags.put(key, String.valueOf(Integer.parseInt(value)));
+                }
+            }
+        }
+        symbolBlock.setCachedOpFlags(flags);
+        if (JnaUtils.useThreadSafePredictor()) {
+            logger.debug("CachedOp of {}: thread safe, static allocation disabled", modelName);
+        } else {
+            logger.debug("CachedOp of {}: {}", modelName, flags);
+        }
+    }
+
     @SuppressWarnings("PMD.UseConcurrentHashMap")
     private void loadParameters(String modelName, Map<String, String> options)
             throws IOException, MalformedModelException {
@@ -15,6 +15,7 @@ package ai.djl.mxnet.engine;
 import ai.djl.Device;
 import ai.djl.mxnet.jna.JnaUtils;
 import ai.djl.mxnet.jna.NativeResource;
+import ai.djl.mxnet.jna.PreparedOp;
 import ai.djl.ndarray.Matrix;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
@@ -33,6 +34,7 @@ import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -51,6 +53,19 @@ public class MxNDArray extends NativeResource implements NDArray {
     private static final int MAX_ROWS = 10;
     private static final int MAX_COLUMNS = 20;
 
+    private static final PreparedOp ADD = PreparedOp.of("_npi_add");
+    private static final PreparedOp ADD_SCALAR = PreparedOp.of("_npi_add_scalar", "scalar");
+    private static final PreparedOp SUBTRACT = PreparedOp.of("_npi_subtract");
+    private static final PreparedOp SUBTRACT_SCALAR =
+            PreparedOp.of("_npi_subtract_scalar", "scalar");
+    private static final PreparedOp MULTIPLY = PreparedOp.of("_npi_multiply");
+    private static final PreparedOp MULTIPLY_SCALAR =
+            PreparedOp.of("_npi_multiply_scalar", "scalar");
+    private static final PreparedOp TRUE_DIVIDE = PreparedOp.of("_npi_true_divide");
+    private static final PreparedOp TRUE_DIVIDE_SCALAR =
+            PreparedOp.of("_npi_true_divide_scalar", "scalar");
+    private static final PreparedOp NEGATIVE = PreparedOp.of("_npi_negative");
+
     private String name;
     private Device device;
     private SparseFormat sparseFormat;
@@ -61,6 +76,8 @@ public class MxNDArray extends NativeResource implements NDArray {
 
     // Whether the NDArray should be freed on closing. Used for callbacks like kvstore update
     private boolean shouldFree = true;
+    // Whether the NDArray shares the memory of another NDArray, like the gradient of a parameter
+    private boolean view;
 
     /**
      * Constructs an MxNDArray from a native handle and metadata (internal. Use {@link NDManager}
@@ -225,6 +242,26 @@ public class MxNDArray extends NativeResource implements NDArray {
      */
     public void setShouldFree(boolean shouldFree) {
         this.shouldFree = shouldFree;
+        if (!shouldFree) {
+            // the memory belongs to the caller, it is not counted against the manager
+            manager.untrack(getUid());
+        }
+    }
+
+    /**
+     * Returns whether the MxNDArray owns its memory (internal).
+     *
+     * <p>Only the memory of arrays that own it is counted by the {@link
+     * ai.djl.ndarray.MemoryTracker}.
+     *
+     * @return {@code false} if the memory belongs to the caller or to another array
+     */
+    boolean ownsMemory() {
+        return shouldFree && !view;
+    }
+
+    void setView(boolean view) {
+        this.view = view;
     }
 
     /**
@@ -243,6 +280,12 @@ public class MxNDArray extends NativeResource implements NDArray {
         attachGradient(GradReq.WRITE, null);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void attachGradient(GradReq gradReq) {
+        attachGradient(gradReq, null);
+    }
+
     private void attachGradient(GradReq gradReq, SparseFormat format) {
         // Does zerosLike support sparse?
         try (MxNDArray grad = createGradient(format)) {
@@ -269,7 +312,7 @@ public class MxNDArray extends NativeResource implements NDArray {
                     "No gradient attached to this NDArray, please call array.attachGradient()"
                             + "on your NDArray or block.setInitializer() on your Block");
         }
-        return manager.create(pointer);
+        return manager.createView(pointer);
     }
 
     /** {@inheritDoc} */
@@ -279,12 +322,29 @@ public class MxNDArray extends NativeResource implements NDArray {
         DataType dType = getDataType();
         long product = sh.size();
         long len = dType.getNumOfBytes() * product;
-        ByteBuffer bb = manager.allocateDirect(Math.toIntExact(len));
+        // not from the pool, the buffer is handed to the caller and may outlive the manager
+        ByteBuffer bb = ByteBuffer.allocateDirect(Math.toIntExact(len));
+        bb.order(ByteOrder.nativeOrder());
         Pointer pointer = Native.getDirectBufferPointer(bb);
         JnaUtils.syncCopyToCPU(getHandle(), pointer, Math.toIntExact(product));
         return bb;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Dense {@code NDArray}s on CPU are viewed in place, once pending operations that write to
+     * them have completed.
+     */
+    @Override
+    public ByteBuffer asByteBufferView() {
+        ByteBuffer bb = getHostBuffer(false);
+        if (bb == null) {
+            return NDArray.super.asByteBufferView();
+        }
+        return bb.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    }
+
     /** {@inheritDoc} */
     @Override
     public void set(Buffer data) {
@@ -298,8 +358,12 @@ public class MxNDArray extends NativeResource implements NDArray {
             return;
         }
 
-        int numOfBytes = inputType.getNumOfBytes();
-        ByteBuffer buf = manager.allocateDirect(size * numOfBytes);
+        // dense arrays on CPU are written in place, others go through a staging buffer
+        ByteBuffer buf = getHostBuffer(true);
+        boolean staged = buf == null;
+        if (staged) {
+            buf = manager.allocateDirect(size * inputType.getNumOfBytes());
+        }
 
         switch (inputType) {
             case FLOAT32:
@@ -323,7 +387,35 @@ public class MxNDArray extends NativeResource implements NDArray {
             default:
                 throw new AssertionError("Show never happen");
         }
-        JnaUtils.syncCopyFromCPU(getHandle(), buf, size);
+        if (staged) {
+            JnaUtils.syncCopyFromCPU(getHandle(), buf, size);
+            manager.releaseDirect(buf);
+        }
+    }
+
+    /**
+     * Returns a {@link ByteBuffer} over the host memory of this {@code NDArray}.
+     *
+     * @param write whether the buffer will be written to, rather than read from
+     * @return a {@link ByteBuffer} over the host memory, or {@code null} if this {@code NDArray} is
+     *     not a dense {@code NDArray} on CPU
+     */
+    private ByteBuffer getHostBuffer(boolean write) {
+        if (getSparseFormat() != SparseFormat.DENSE
+                || !Device.Type.CPU.equals(getDevice().getDeviceType())) {
+            return null;
+        }
+        if (write) {
+            JnaUtils.waitToWrite(getHandle());
+        } else {
+            JnaUtils.waitToRead(getHandle());
+        }
+        Pointer pointer = JnaUtils.getDataPointer(getHandle());
+        if (pointer == null) {
+            return null;
+        }
+        long len = getDataType().getNumOfBytes() * getShape().size();
+        return pointer.getByteBuffer(0, len).order(ByteOrder.nativeOrder());
     }
 
     /** {@inheritDoc} */
@@ -608,43 +700,37 @@ public class MxNDArray extends NativeResource implements NDArray {
     /** {@inheritDoc} */
     @Override
     public NDArray add(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        return manager.invoke("_npi_add_scalar", this, params);
+        return ADD_SCALAR.invoke(manager, new NDArray[] {this}, n);
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray add(NDArray other) {
-        return manager.invoke("_npi_add", new NDArray[] {this, other}, null);
+        return ADD.invoke(manager, new NDArray[] {this, other});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray sub(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        return manager.invoke("_npi_subtract_scalar", this, params);
+        return SUBTRACT_SCALAR.invoke(manager, new NDArray[] {this}, n);
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray sub(NDArray other) {
-        return manager.invoke("_npi_subtract", new NDArray[] {this, other}, null);
+        return SUBTRACT.invoke(manager, new NDArray[] {this, other});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray mul(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        return manager.invoke("_npi_multiply_scalar", this, params);
+        return MULTIPLY_SCALAR.invoke(manager, new NDArray[] {this}, n);
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray mul(NDArray other) {
-        return manager.invoke("_npi_multiply", new NDArray[] {this, other}, null);
+        return MULTIPLY.invoke(manager, new NDArray[] {this, other});
     }
 
     /** {@inheritDoc} */
@@ -668,15 +754,13 @@ public class MxNDArray extends NativeResource implements NDArray {
     /** {@inheritDoc} */
     @Override
     public NDArray div(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        return manager.invoke("_npi_true_divide_scalar", this, params);
+        return TRUE_DIVIDE_SCALAR.invoke(manager, new NDArray[] {this}, n);
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray div(NDArray other) {
-        return manager.invoke("_npi_true_divide", new NDArray[] {this, other}, null);
+        return TRUE_DIVIDE.invoke(manager, new NDArray[] {this, other});
     }
 
     /** {@inheritDoc} */
@@ -710,65 +794,60 @@ public class MxNDArray extends NativeResource implements NDArray {
     /** {@inheritDoc} */
     @Override
     public NDArray addi(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        manager.invoke("_npi_add_scalar", new NDArray[] {this}, new NDArray[] {this}, params);
+        NDArray[] arrays = {this};
+        ADD_SCALAR.invoke(arrays, arrays, n);
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray addi(NDArray other) {
-        manager.invoke("_npi_add", new NDArray[] {this, other}, new NDArray[] {this}, null);
+        ADD.invoke(new NDArray[] {this, other}, new NDArray[] {this});
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray subi(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        manager.invoke("_npi_subtract_scalar", new NDArray[] {this}, new NDArray[] {this}, params);
+        NDArray[] arrays = {this};
+        SUBTRACT_SCALAR.invoke(arrays, arrays, n);
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray subi(NDArray other) {
-        manager.invoke("_npi_subtract", new NDArray[] {this, other}, new NDArray[] {this}, null);
+        SUBTRACT.invoke(new NDArray[] {this, other}, new NDArray[] {this});
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray muli(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        manager.invoke("_npi_multiply_scalar", new NDArray[] {this}, new NDArray[] {this}, params);
+        NDArray[] arrays = {this};
+        MULTIPLY_SCALAR.invoke(arrays, arrays, n);
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray muli(NDArray other) {
-        manager.invoke("_npi_multiply", new NDArray[] {this, other}, new NDArray[] {this}, null);
+        MULTIPLY.invoke(new NDArray[] {this, other}, new NDArray[] {this});
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray divi(Number n) {
-        MxOpParams params = new MxOpParams();
-        params.add("scalar", n.toString());
-        manager.invoke(
-                "_npi_true_divide_scalar", new NDArray[] {this}, new NDArray[] {this}, params);
+        NDArray[] arrays = {this};
+        TRUE_DIVIDE_SCALAR.invoke(arrays, arrays, n);
         return this;
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray divi(NDArray other) {
-        manager.invoke("_npi_true_divide", new NDArray[] {this, other}, new NDArray[] {this}, null);
+        TRUE_DIVIDE.invoke(new NDArray[] {this, other}, new NDArray[] {this});
         return this;
     }
 
@@ -807,13 +886,14 @@ public class MxNDArray extends NativeResource implements NDArray {
     /** {@inheritDoc} */
     @Override
     public NDArray neg() {
-        return manager.invoke("_npi_negative", this, null);
+        return NEGATIVE.invoke(manager, new NDArray[] {this});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray negi() {
-        manager.invoke("_npi_negative", new NDArray[] {this}, new NDArray[] {this}, null);
+        NDArray[] arrays = {this};
+        NEGATIVE.invoke(arrays, arrays);
         return this;
     }
 
@@ -1647,6 +1727,8 @@ public class MxNDArray extends NativeResource implements NDArray {
     @Override
     public void close() {
         if (!shouldFree) {
+            // the memory is owned by the caller, drop the handle so it is not reported as leaked
+            handle.set(null);
             return;
         }
         Pointer pointer = handle.getAndSet(null);
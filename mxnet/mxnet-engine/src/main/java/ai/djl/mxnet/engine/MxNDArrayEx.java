@@ -12,6 +12,7 @@
  */
 package ai.djl.mxnet.engine;
 
+import ai.djl.mxnet.jna.PreparedOp;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.internal.NDArrayEx;
@@ -26,6 +27,63 @@ import java.util.stream.Stream;
 /** {@code MxNDArrayEx} is the MXNet implementation of the {@link NDArrayEx}. */
 class MxNDArrayEx implements NDArrayEx {
 
+    private static final NDArray[] EMPTY = new NDArray[0];
+
+    private static final PreparedOp RELU = activation("Activation", "relu");
+    private static final PreparedOp SIGMOID = activation("Activation", "sigmoid");
+    private static final PreparedOp TANH = activation("Activation", "tanh");
+    private static final PreparedOp SOFTRELU = activation("Activation", "softrelu");
+    private static final PreparedOp SOFTSIGN = activation("Activation", "softsign");
+    private static final PreparedOp LEAKY = activation("LeakyReLU", "leaky", "slope");
+    private static final PreparedOp ELU = activation("LeakyReLU", "elu", "slope");
+    private static final PreparedOp SELU = activation("LeakyReLU", "selu");
+    private static final PreparedOp GELU = activation("LeakyReLU", "gelu");
+
+    private static final PreparedOp ADAM_UPDATE =
+            PreparedOp.of(
+                    "adam_update",
+                    "lr",
+                    "wd",
+                    "rescale_grad",
+                    "clip_gradient",
+                    "beta1",
+                    "beta2",
+                    "epsilon",
+                    "lazy_update");
+    private static final PreparedOp NAG_MOM_UPDATE =
+            PreparedOp.of(
+                    "nag_mom_update", "lr", "wd", "rescale_grad", "clip_gradient", "momentum");
+    private static final PreparedOp SGD_MOM_UPDATE =
+            PreparedOp.of(
+                    "sgd_mom_update",
+                    "lr",
+                    "wd",
+                    "rescale_grad",
+                    "clip_gradient",
+                    "lazy_update",
+                    "momentum");
+    private static final PreparedOp SGD_UPDATE =
+            PreparedOp.of("sgd_update", "lr", "wd", "rescale_grad", "clip_gradient", "lazy_update");
+    private static final PreparedOp MULTI_SGD_MOM_UPDATE =
+            PreparedOp.of(
+                    "multi_sgd_mom_update",
+                    "lrs",
+                    "wds",
+                    "rescale_grad",
+                    "clip_gradient",
+                    "momentum",
+                    "num_weights");
+    private static final PreparedOp MULTI_SGD_UPDATE =
+            PreparedOp.of(
+                    "multi_sgd_update",
+                    "lrs",
+                    "wds",
+                    "rescale_grad",
+                    "clip_gradient",
+                    "num_weights");
+    // the multi-tensor kernels of MXNet accept at most 60 weights per call
+    private static final int MAX_MULTI_WEIGHTS = 60;
+
     private MxNDArray array;
 
     /**
@@ -37,6 +95,12 @@ class MxNDArrayEx implements NDArrayEx {
         this.array = parent;
     }
 
+    private static PreparedOp activation(String opName, String actType, String... dynamicKeys) {
+        MxOpParams params = new MxOpParams();
+        params.addParam("act_type", actType);
+        return PreparedOp.of(opName, params, dynamicKeys);
+    }
+
     // TODO only used to calculate zero-dim numpy shape
     // remove it once MXNet have all the np op that we support
     private Shape deriveBroadcastedShape(Shape lhs, Shape rhs) {
@@ -182,75 +246,55 @@ class MxNDArrayEx implements NDArrayEx {
     /** {@inheritDoc} */
     @Override
     public NDArray relu() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "relu");
-        return getManager().invoke("Activation", array, params);
+        return RELU.invoke(getManager(), new NDArray[] {array});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray sigmoid() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "sigmoid");
-        return getManager().invoke("Activation", array, params);
+        return SIGMOID.invoke(getManager(), new NDArray[] {array});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray tanh() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "tanh");
-        return getManager().invoke("Activation", array, params);
+        return TANH.invoke(getManager(), new NDArray[] {array});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray softrelu() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "softrelu");
-        return getManager().invoke("Activation", array, params);
+        return SOFTRELU.invoke(getManager(), new NDArray[] {array});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray softsign() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "softsign");
-        return getManager().invoke("Activation", array, params);
+        return SOFTSIGN.invoke(getManager(), new NDArray[] {array});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray leakyRelu(float alpha) {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "leaky");
-        params.addParam("slope", alpha);
-        return getManager().invoke("LeakyReLU", array, params);
+        return LEAKY.invoke(getManager(), new NDArray[] {array}, alpha);
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray elu(float alpha) {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "elu");
-        params.addParam("slope", alpha);
-        return getManager().invoke("LeakyReLU", array, params);
+        return ELU.invoke(getManager(), new NDArray[] {array}, alpha);
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray selu() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "selu");
-        return getManager().invoke("LeakyReLU", array, params);
+        return SELU.invoke(getManager(), new NDArray[] {array});
     }
 
     /** {@inheritDoc} */
     @Override
     public NDArray gelu() {
-        MxOpParams params = new MxOpParams();
-        params.addParam("act_type", "gelu");
-        return getManager().invoke("LeakyReLU", array, params);
+        return GELU.invoke(getManager(), new NDArray[] {array});
     }
 
     ////////////////////////////////////////
@@ -389,18 +433,17 @@ class MxNDArrayEx implements NDArrayEx {
             float beta2,
             float epsilon,
             boolean lazyUpdate) {
-        MxOpParams params = new MxOpParams();
-        params.addParam("lr", learningRate);
-        params.addParam("wd", weightDecay);
-        params.addParam("rescale_grad", rescaleGrad);
-        params.addParam("clip_gradient", clipGrad);
-
-        params.addParam("beta1", beta1);
-        params.addParam("beta2", beta2);
-        params.addParam("epsilon", epsilon);
-        params.addParam("lazy_update", lazyUpdate);
-
-        getManager().invoke("adam_update", inputs, weights, params);
+        ADAM_UPDATE.invoke(
+                inputs.toArray(EMPTY),
+                weights.toArray(EMPTY),
+                learningRate,
+                weightDecay,
+                rescaleGrad,
+                clipGrad,
+                beta1,
+                beta2,
+                epsilon,
+                lazyUpdate);
     }
 
     /** {@inheritDoc} */
@@ -413,13 +456,14 @@ class MxNDArrayEx implements NDArrayEx {
             float rescaleGrad,
             float clipGrad,
             float momentum) {
-        MxOpParams params = new MxOpParams();
-        params.addParam("lr", learningRate);
-        params.addParam("wd", weightDecay);
-        params.addParam("rescale_grad", rescaleGrad);
-        params.addParam("clip_gradient", clipGrad);
-        params.addParam("momentum", momentum);
-        getManager().invoke("nag_mom_update", inputs, weights, params);
+        NAG_MOM_UPDATE.invoke(
+                inputs.toArray(EMPTY),
+                weights.toArray(EMPTY),
+                learningRate,
+                weightDecay,
+                rescaleGrad,
+                clipGrad,
+                momentum);
     }
 
     /** {@inheritDoc} */
@@ -433,18 +477,49 @@ class MxNDArrayEx implements NDArrayEx {
             float clipGrad,
             float momentum,
             boolean lazyUpdate) {
-        MxOpParams params = new MxOpParams();
-        params.addParam("lr", learningRate);
-        params.addParam("wd", weightDecay);
-        params.addParam("rescale_grad", rescaleGrad);
-        params.addParam("clip_gradient", clipGrad);
-        params.addParam("lazy_update", lazyUpdate);
-
+        NDArray[] src = inputs.toArray(EMPTY);
+        NDArray[] dest = weights.toArray(EMPTY);
         if (momentum != 0) {
-            params.addParam("momentum", momentum);
-            getManager().invoke("sgd_mom_update", inputs, weights, params);
+            SGD_MOM_UPDATE.invoke(
+                    src,
+                    dest,
+                    learningRate,
+                    weightDecay,
+                    rescaleGrad,
+                    clipGrad,
+                    lazyUpdate,
+                    momentum);
         } else {
-            getManager().invoke("sgd_update", inputs, weights, params);
+            SGD_UPDATE.invoke(
+                    src, dest, learningRate, weightDecay, rescaleGrad, clipGrad, lazyUpdate);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void multiSgdUpdate(
+            NDList inputs,
+            NDList weights,
+            float[] learningRates,
+            float[] weightDecays,
+            float rescaleGrad,
+            float clipGrad,
+            float momentum) {
+        // inputs are interleaved: weight, grad (and momentum) for each weight
+        int stride = momentum != 0 ? 3 : 2;
+        int numWeights = weights.size();
+        for (int begin = 0; begin < numWeights; begin += MAX_MULTI_WEIGHTS) {
+            int end = Math.min(begin + MAX_MULTI_WEIGHTS, numWeights);
+            NDArray[] src = inputs.subList(begin * stride, end * stride).toArray(EMPTY);
+            NDArray[] dest = weights.subList(begin, end).toArray(EMPTY);
+            String lrs = toTuple(learningRates, begin, end);
+            String wds = toTuple(weightDecays, begin, end);
+            if (momentum != 0) {
+                MULTI_SGD_MOM_UPDATE.invoke(
+                        src, dest, lrs, wds, rescaleGrad, clipGrad, momentum, end - begin);
+            } else {
+                MULTI_SGD_UPDATE.invoke(src, dest, lrs, wds, rescaleGrad, clipGrad, end - begin);
+            }
         }
     }
 
@@ -812,6 +887,17 @@ class MxNDArrayEx implements NDArrayEx {
         return new Shape(shape);
     }
 
+    private static String toTuple(float[] values, int begin, int end) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = begin; i < end; ++i) {
+            if (i > begin) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(')').toString();
+    }
+
     public MxNDManager getManager() {
         return (MxNDManager) array.getManager();
     }
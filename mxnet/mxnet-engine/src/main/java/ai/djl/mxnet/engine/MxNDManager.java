@@ -15,12 +15,17 @@ package ai.djl.mxnet.engine;
 import ai.djl.Device;
 import ai.djl.engine.EngineException;
 import ai.djl.mxnet.jna.JnaUtils;
+import ai.djl.mxnet.jna.NativeResource;
+import ai.djl.ndarray.MemoryLimitExceededException;
+import ai.djl.ndarray.MemoryTracker;
 import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDExpression;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.util.DirectBufferPool;
 import ai.djl.util.PairList;
 import com.sun.jna.Pointer;
 import java.lang.ref.Reference;
@@ -28,10 +33,12 @@ import java.lang.ref.WeakReference;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +47,9 @@ public class MxNDManager implements NDManager {
 
     private static final Logger logger = LoggerFactory.getLogger(MxNDManager.class);
 
+    // declared before SYSTEM_MANAGER, which uses it to create its id
+    private static final AtomicLong MANAGER_ID = new AtomicLong();
+
     /**
      * A global {@link NDManager} singleton instance.
      *
@@ -51,27 +61,71 @@ public class MxNDManager implements NDManager {
 
     private static final NDArray[] EMPTY = new NDArray[0];
 
+    private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool();
+
     private NDManager parent;
     private String uid;
     private Device device;
+    // guarded by this, attach(), detach() and close() are synchronized
     private Map<String, Reference<AutoCloseable>> resources;
+    // pooled buffers handed out by allocateDirect(), from the returned slice to the pooled buffer
+    private Map<ByteBuffer, ByteBuffer> buffers;
+    private MemoryTracker memoryTracker;
     private AtomicBoolean closed = new AtomicBoolean(false);
+    private long creationBatch;
 
     private MxNDManager(NDManager parent, Device device) {
         this.parent = parent;
         this.device = Device.defaultIfNull(device);
-        resources = new ConcurrentHashMap<>();
-        uid = UUID.randomUUID().toString();
+        resources = new HashMap<>();
+        memoryTracker = new MemoryTracker(parent == null ? null : parent.getMemoryTracker());
+        buffers = new IdentityHashMap<>();
+        // a counter is much cheaper than UUID.randomUUID(), which uses SecureRandom
+        uid = "NDManager-" + MANAGER_ID.incrementAndGet();
+        creationBatch = LeakDetector.getBatch();
     }
 
     static MxNDManager getSystemManager() {
         return SYSTEM_MANAGER;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The buffer comes from a pool shared by all {@code MxNDManager}s, and goes back to the pool
+     * when this manager is closed.
+     */
     @Override
     public ByteBuffer allocateDirect(int capacity) {
-        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        ByteBuffer pooled = BUFFER_POOL.acquire(capacity);
+        pooled.limit(capacity);
+        ByteBuffer buffer = pooled.slice().order(ByteOrder.nativeOrder());
+        synchronized (this) {
+            if (closed.get()) {
+                BUFFER_POOL.release(pooled);
+                throw new IllegalStateException("NDManager has been closed already.");
+            }
+            buffers.put(buffer, pooled);
+        }
+        return buffer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void releaseDirect(ByteBuffer buffer) {
+        ByteBuffer pooled = buffers.remove(buffer);
+        if (pooled != null) {
+            BUFFER_POOL.release(pooled);
+        }
+    }
+
+    /**
+     * Returns the direct buffer pool used by {@link #allocateDirect(int)}.
+     *
+     * @return the direct buffer pool used by {@link #allocateDirect(int)}
+     */
+    public DirectBufferPool getBufferPool() {
+        return BUFFER_POOL;
     }
 
     /**
@@ -82,6 +136,21 @@ public class MxNDManager implements NDManager {
      */
     public MxNDArray create(Pointer handle) {
         MxNDArray array = new MxNDArray(this, handle);
+        attachNew(array);
+        return array;
+    }
+
+    /**
+     * Creates an MxNDArray that shares the memory of another array and attaches it to this manager.
+     *
+     * <p>The memory is not counted again by the {@link MemoryTracker}.
+     *
+     * @param handle the array's native memory pointer
+     * @return the created array
+     */
+    MxNDArray createView(Pointer handle) {
+        MxNDArray array = new MxNDArray(this, handle);
+        array.setView(true);
         attach(array.getUid(), array);
         return array;
     }
@@ -95,7 +164,7 @@ public class MxNDManager implements NDManager {
      */
     public MxSparseNDArray create(Pointer handle, SparseFormat fmt) {
         MxSparseNDArray array = new MxSparseNDArray(this, handle, fmt);
-        attach(array.getUid(), array);
+        attachNew(array);
         return array;
     }
 
@@ -105,7 +174,7 @@ public class MxNDManager implements NDManager {
         dev = Device.defaultIfNull(dev, device);
         Pointer handle = JnaUtils.createNdArray(dev, shape, dataType, shape.dimension(), false);
         MxNDArray array = new MxNDArray(this, handle, dev, shape, dataType);
-        attach(array.getUid(), array);
+        attachNew(array);
         return array;
     }
 
@@ -292,14 +361,39 @@ public class MxNDManager implements NDManager {
         return device;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Chains of operators are compiled into one CachedOp per distinct expression and executed
+     * with a single native call.
+     */
+    @Override
+    public NDArray evaluate(NDExpression expression, NDArray... inputs) {
+        return FusedExpression.evaluate(this, expression, inputs);
+    }
+
     /** {@inheritDoc} */
     @Override
-    public synchronized void attach(String resourceId, AutoCloseable resource) {
-        if (closed.get()) {
-            throw new IllegalStateException("NDManager has been closed already.");
+    public MemoryTracker getMemoryTracker() {
+        return memoryTracker;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws MemoryLimitExceededException if the resource is an {@link NDArray} that would exceed
+     *     the memory limit of this manager or one of its ancestors
+     */
+    @Override
+    public void attach(String resourceId, AutoCloseable resource) {
+        Reference<AutoCloseable> ref = track(resource);
+        synchronized (this) {
+            if (closed.get()) {
+                untrack(ref);
+                throw new IllegalStateException("NDManager has been closed already.");
+            }
+            untrack(resources.put(resourceId, ref));
         }
-        WeakReference<AutoCloseable> ref = new WeakReference<>(resource);
-        resources.put(resourceId, ref);
     }
 
     /** {@inheritDoc} */
@@ -309,7 +403,20 @@ public class MxNDManager implements NDManager {
             // This may happen in the middle of MxNDManager.close()
             return;
         }
-        resources.remove(resourceId);
+        untrack(resources.remove(resourceId));
+    }
+
+    /**
+     * Stops counting the memory of an attached {@link NDArray}, which does not own its memory.
+     *
+     * @param resourceId the resource id of the {@link NDArray}
+     */
+    synchronized void untrack(String resourceId) {
+        Reference<AutoCloseable> ref = resources.get(resourceId);
+        if (ref instanceof ArrayReference) {
+            untrack(ref);
+            resources.put(resourceId, new WeakReference<>(ref.get()));
+        }
     }
 
     /** {@inheritDoc} */
@@ -407,7 +514,7 @@ public class MxNDManager implements NDManager {
                 + " isOpen: "
                 + isOpen()
                 + " Resource size: "
-                + resources.size();
+                + getResourceCount();
     }
 
     /** {@inheritDoc} */
@@ -423,9 +530,14 @@ public class MxNDManager implements NDManager {
                         logger.error("Resource close failed.", e);
                     }
                 }
+                untrack(resource);
             }
             parent.detach(uid);
             resources.clear();
+            for (ByteBuffer pooled : buffers.values()) {
+                BUFFER_POOL.release(pooled);
+            }
+            buffers.clear();
         }
     }
 
@@ -434,15 +546,17 @@ public class MxNDManager implements NDManager {
      *
      * @param level the level of this {@link NDManager} in the hierarchy
      */
-    public void debugDump(int level) {
+    public synchronized void debugDump(int level) {
         StringBuilder sb = new StringBuilder(100);
         for (int i = 0; i < level; ++i) {
             sb.append("    ");
         }
         sb.append("\\--- NDManager(")
-                .append(uid.substring(24))
+                .append(uid)
                 .append(") resource count: ")
-                .append(resources.size());
+                .append(resources.size())
+                .append(", bytes: ")
+                .append(memoryTracker.getCurrentBytes());
 
         System.out.println(sb.toString()); // NOPMD
         for (Reference<AutoCloseable> ref : resources.values()) {
@@ -453,6 +567,81 @@ public class MxNDManager implements NDManager {
         }
     }
 
+    private void attachNew(MxNDArray array) {
+        try {
+            attach(array.getUid(), array);
+        } catch (MemoryLimitExceededException e) {
+            // the caller never sees the array, so it must be freed here
+            array.close();
+            throw e;
+        }
+    }
+
+    private Reference<AutoCloseable> track(AutoCloseable resource) {
+        if (resource instanceof MxNDArray
+                && !(resource instanceof MxSparseNDArray)
+                && ((MxNDArray) resource).ownsMemory()
+                && memoryTracker.isEnabled()) {
+            // sparse arrays are not counted, their size depends on the number of stored values
+            MxNDArray array = (MxNDArray) resource;
+            Device dev = array.getDevice();
+            long bytes = array.size() * array.getDataType().getNumOfBytes();
+            memoryTracker.allocate(dev, bytes);
+            return new ArrayReference(array, dev, bytes);
+        }
+        return new WeakReference<>(resource);
+    }
+
+    private void untrack(Reference<AutoCloseable> ref) {
+        if (ref instanceof ArrayReference) {
+            ArrayReference arrayRef = (ArrayReference) ref;
+            memoryTracker.free(arrayRef.device, arrayRef.bytes);
+        }
+    }
+
+    /**
+     * Adds the native resources of this manager and its sub-managers to a list.
+     *
+     * @param list the list to add to
+     */
+    synchronized void collectResources(List<NativeResource> list) {
+        for (Reference<AutoCloseable> ref : resources.values()) {
+            AutoCloseable resource = ref.get();
+            if (resource instanceof NativeResource) {
+                list.add((NativeResource) resource);
+            } else if (resource instanceof MxNDManager) {
+                ((MxNDManager) resource).collectResources(list);
+            }
+        }
+    }
+
+    /**
+     * Adds the direct sub-managers of this manager to a list.
+     *
+     * @param list the list to add to
+     */
+    synchronized void collectSubManagers(List<MxNDManager> list) {
+        for (Reference<AutoCloseable> ref : resources.values()) {
+            AutoCloseable resource = ref.get();
+            if (resource instanceof MxNDManager) {
+                list.add((MxNDManager) resource);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of batches completed when this manager was created.
+     *
+     * @return the number of batches completed when this manager was created
+     */
+    long getCreationBatch() {
+        return creationBatch;
+    }
+
+    private synchronized int getResourceCount() {
+        return resources.size();
+    }
+
     boolean isOpen() {
         return !closed.get();
     }
@@ -468,6 +657,19 @@ public class MxNDManager implements NDManager {
         return invoke(opName, params);
     }
 
+    /** A reference to an attached {@link MxNDArray} and the memory it is counted for. */
+    private static final class ArrayReference extends WeakReference<AutoCloseable> {
+
+        Device device;
+        long bytes;
+
+        ArrayReference(MxNDArray array, Device device, long bytes) {
+            super(array);
+            this.device = device;
+            this.bytes = bytes;
+        }
+    }
+
     /** The SystemManager is the root {@link MxNDManager} of which all others are children. */
     private static final class SystemManager extends MxNDManager {
 
@@ -475,6 +677,17 @@ public class MxNDManager implements NDManager {
             super(null, Device.defaultDevice());
         }
 
+        /** {@inheritDoc} */
+        @Override
+        public ByteBuffer allocateDirect(int capacity) {
+            // the system manager is never closed, its buffers are left to the GC
+            return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void releaseDirect(ByteBuffer buffer) {}
+
         /** {@inheritDoc} */
         @Override
         public void attach(String resourceId, AutoCloseable resource) {}
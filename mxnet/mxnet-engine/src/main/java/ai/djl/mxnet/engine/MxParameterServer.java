@@ -23,18 +23,39 @@ import ai.djl.training.optimizer.Optimizer;
 import com.sun.jna.Pointer;
 import java.util.Arrays;
 
-/** {@code MxParameterServer} is the MXNet implementation of {@link ParameterServer}. */
+/**
+ * {@code MxParameterServer} is the MXNet implementation of {@link ParameterServer}.
+ *
+ * <p>Gradients are aggregated by the native MXNet KVStore, so the reduction runs inside the MXNet
+ * dependency engine, and the updates are applied by the Java {@link Optimizer}.
+ */
 public class MxParameterServer extends NativeResource implements ParameterServer {
 
+    private MxNDManager manager;
+    // kept as a field, so the native callback is not garbage collected while the store is in use
+    private OptimizerCallback callback;
+
     /**
-     * Constructs a new {@code MxParameterServer}.
+     * Constructs a new {@code MxParameterServer} with a {@code device} KVStore.
      *
      * @param optimizer the optimizer to use for the parameter server updates
      */
     public MxParameterServer(Optimizer optimizer) {
-        super(createdKVStore());
-        JnaUtils.parameterStoreSetUpdater(
-                getHandle(), null, new OptimizerCallback(optimizer), null);
+        this(optimizer, "device");
+    }
+
+    /**
+     * Constructs a new {@code MxParameterServer}.
+     *
+     * @param optimizer the optimizer to use for the parameter server updates
+     * @param type the type of the MXNet KVStore, for example {@code device} to aggregate on the
+     *     devices or {@code local} to aggregate on the CPU
+     */
+    public MxParameterServer(Optimizer optimizer, String type) {
+        super(JnaUtils.parameterStoreCreate(type));
+        manager = MxNDManager.getSystemManager().newSubManager();
+        callback = new OptimizerCallback(optimizer, manager);
+        JnaUtils.parameterStoreSetUpdater(getHandle(), null, callback, null);
     }
 
     /** {@inheritDoc} */
@@ -64,8 +85,52 @@ public class MxParameterServer extends NativeResource implements ParameterServer
         JnaUtils.parameterStorePull(getHandle(), weights.length, keys, vals, priority);
     }
 
-    private static Pointer createdKVStore() {
-        return JnaUtils.parameterStoreCreate("device");
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All keys are pushed with a single native call. MXNet takes one priority per call, so
+     * {@code priority} applies to the whole batch and the engine schedules the keys in order.
+     */
+    @Override
+    public void push(String[] parameterIds, NDArray[][] grads, int priority) {
+        String[] keys = flattenKeys(parameterIds, grads);
+        NDList vals = flattenValues(grads, keys.length);
+        JnaUtils.parameterStorePush(getHandle(), keys.length, keys, vals, priority);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All keys are pulled with a single native call. MXNet takes one priority per call, so
+     * {@code priority} applies to the whole batch and the engine schedules the keys in order.
+     */
+    @Override
+    public void pull(String[] parameterIds, NDArray[][] weights, int priority) {
+        String[] keys = flattenKeys(parameterIds, weights);
+        NDList vals = flattenValues(weights, keys.length);
+        JnaUtils.parameterStorePull(getHandle(), keys.length, keys, vals, priority);
+    }
+
+    private static String[] flattenKeys(String[] parameterIds, NDArray[][] arrays) {
+        int size = 0;
+        for (NDArray[] array : arrays) {
+            size += array.length;
+        }
+        String[] keys = new String[size];
+        int index = 0;
+        for (int i = 0; i < parameterIds.length; ++i) {
+            Arrays.fill(keys, index, index + arrays[i].length, parameterIds[i]);
+            index += arrays[i].length;
+        }
+        return keys;
+    }
+
+    private static NDList flattenValues(NDArray[][] arrays, int size) {
+        NDList vals = new NDList(size);
+        for (NDArray[] array : arrays) {
+            vals.addAll(Arrays.asList(array));
+        }
+        return vals;
     }
 
     /** {@inheritDoc} */
@@ -74,6 +139,7 @@ public class MxParameterServer extends NativeResource implements ParameterServer
         Pointer pointer = handle.getAndSet(null);
         if (pointer != null) {
             JnaUtils.parameterStoreClose(pointer);
+            manager.close();
         }
     }
 
@@ -81,21 +147,28 @@ public class MxParameterServer extends NativeResource implements ParameterServer
     private static final class OptimizerCallback implements MxnetLibrary.MXKVStoreStrUpdater {
 
         private Optimizer optimizer;
+        private MxNDManager manager;
 
-        OptimizerCallback(Optimizer optimizer) {
+        OptimizerCallback(Optimizer optimizer, MxNDManager manager) {
             this.optimizer = optimizer;
+            this.manager = manager;
         }
 
         /** {@inheritDoc} */
         @Override
         public void apply(String parameterId, Pointer recv, Pointer local, Pointer handle) {
             // updater callback arguments order is: index, gradient, weight.
-            try (MxNDManager manager = MxNDManager.getSystemManager().newSubManager()) {
-                MxNDArray grad = manager.create(recv);
-                MxNDArray weight = manager.create(local);
-                grad.setShouldFree(false);
-                weight.setShouldFree(false);
+            // the arrays are owned by the KVStore, so they are wrapped without being attached
+            MxNDArray grad = new MxNDArray(manager, recv);
+            MxNDArray weight = new MxNDArray(manager, local);
+            grad.setShouldFree(false);
+            weight.setShouldFree(false);
+            try {
                 optimizer.update(parameterId, weight, grad);
+            } finally {
+                // only drops the handles, so the wrappers are not reported as leaked
+                grad.close();
+                weight.close();
             }
         }
     }
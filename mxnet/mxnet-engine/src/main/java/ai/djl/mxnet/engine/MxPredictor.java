@@ -30,6 +30,8 @@ public class MxPredictor<I, O> extends BasePredictor<I, O> {
 
     private static final Logger logger = LoggerFactory.getLogger(MxPredictor.class);
 
+    private LeakDetector.AllocationSite allocationSite;
+
     /**
      * Constructs a {@code MxPredictor}.
      *
@@ -39,6 +41,17 @@ public class MxPredictor<I, O> extends BasePredictor<I, O> {
      */
     MxPredictor(MxModel model, Translator<I, O> translator, boolean copy) {
         super(model, translator, copy);
+        if (LeakDetector.isEnabled()) {
+            allocationSite = LeakDetector.capture(true);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected NDList forward(NDList ndList) {
+        NDList result = super.forward(ndList);
+        LeakDetector.batchCompleted();
+        return result;
     }
 
     /** {@inheritDoc} */
@@ -52,7 +65,9 @@ public class MxPredictor<I, O> extends BasePredictor<I, O> {
     @Override
     protected void finalize() throws Throwable {
         if (((MxNDManager) manager).isOpen()) {
-            if (logger.isDebugEnabled()) {
+            if (allocationSite != null) {
+                LeakDetector.reportUnclosed(getClass().getSimpleName(), allocationSite);
+            } else if (logger.isDebugEnabled()) {
                 logger.warn(
                         "MxPredictor was not closed explicitly: {}", getClass().getSimpleName());
             }
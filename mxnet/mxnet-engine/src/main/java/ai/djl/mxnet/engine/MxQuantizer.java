@@ -0,0 +1,671 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import ai.djl.mxnet.jna.JnaUtils;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.nn.Block;
+import ai.djl.nn.Parameter;
+import ai.djl.training.ParameterStore;
+import ai.djl.training.dataset.Batch;
+import ai.djl.training.dataset.Dataset;
+import ai.djl.training.evaluator.Evaluator;
+import ai.djl.util.Pair;
+import com.sun.jna.Pointer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@code MxQuantizer} converts a {@link MxSymbolBlock} to INT8 with post-training quantization.
+ *
+ * <p>The weights are quantized ahead of time, and the ranges of the quantized activations are
+ * calibrated by running the original block on a few batches of a {@link Dataset}:
+ *
+ * <ul>
+ *   <li>{@link CalibrationMode#NAIVE} uses the minimum and maximum value of each layer output.
+ *   <li>{@link CalibrationMode#ENTROPY} picks the threshold that minimizes the KL divergence
+ *       between the distribution of the layer output and its quantized distribution, which is
+ *       less sensitive to outliers.
+ *   <li>{@link CalibrationMode#NONE} computes the ranges at runtime, which is slower.
+ * </ul>
+ *
+ * <p>The quantized block can be saved, and loaded back with {@link ai.djl.Model#load}:
+ *
+ * <pre>
+ * MxQuantizer quantizer = new MxQuantizer.Builder().optCalibrationBatches(10).build();
+ * MxSymbolBlock int8 =
+ *         quantizer.quantize((MxSymbolBlock) model.getBlock(), dataset, int8Model.getNDManager());
+ * int8Model.setBlock(int8);
+ * int8Model.save(modelDir, "resnet50-int8");
+ * </pre>
+ *
+ * <p>Quantized operators require an MXNet build with MKL-DNN on CPU.
+ */
+public final class MxQuantizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MxQuantizer.class);
+
+    private static final int NUM_BINS = 8001;
+    private static final int NUM_QUANTIZED_BINS = 255;
+
+    private CalibrationMode calibrationMode;
+    private int calibrationBatches;
+    private String quantizedDataType;
+    private String quantizeMode;
+    private String[] excludedLayers;
+    private String[] excludedOperators;
+
+    MxQuantizer(Builder builder) {
+        calibrationMode = builder.calibrationMode;
+        calibrationBatches = builder.calibrationBatches;
+        quantizedDataType = builder.quantizedDataType;
+        quantizeMode = builder.quantizeMode;
+        excludedLayers = builder.excludedLayers;
+        excludedOperators = builder.excludedOperators;
+    }
+
+    /**
+     * Quantizes a {@link MxSymbolBlock}.
+     *
+     * @param block the block to quantize, its parameters must be loaded
+     * @param calibrationDataset the dataset to calibrate the quantized ranges with
+     * @param manager the manager of the quantized block
+     * @return the quantized block
+     */
+    public MxSymbolBlock quantize(
+            MxSymbolBlock block, Dataset calibrationDataset, NDManager manager) {
+        MxNDManager mxManager = (MxNDManager) manager;
+        List<String> inputNames = new ArrayList<>(block.describeInput().keys());
+        Map<String, Parameter> params = new HashMap<>();
+        List<String> offlineParams = new ArrayList<>();
+        for (Parameter parameter : block.getAllParameters()) {
+            String name = parameter.getName();
+            if (!inputNames.contains(name)) {
+                params.put(name, parameter);
+                offlineParams.add(name);
+            }
+        }
+
+        Pair<Pointer, String[]> pair =
+                JnaUtils.quantizeSymbol(
+                        block.getSymbol().getHandle(),
+                        manager.getDevice(),
+                        excludedLayers,
+                        excludedOperators,
+                        offlineParams.toArray(new String[0]),
+                        quantizedDataType,
+                        quantizeMode);
+        Symbol symbol = new Symbol(mxManager, pair.getKey());
+        String[] calibrationLayers = pair.getValue();
+
+        Map<String, float[]> thresholds = new LinkedHashMap<>();
+        if (calibrationMode != CalibrationMode.NONE && calibrationLayers.length > 0) {
+            thresholds = calibrate(block, calibrationDataset, calibrationLayers, manager);
+            String[] layerNames = thresholds.keySet().toArray(new String[0]);
+            float[] low = new float[layerNames.length];
+            float[] high = new float[layerNames.length];
+            for (int i = 0; i < layerNames.length; ++i) {
+                float[] threshold = thresholds.get(layerNames[i]);
+                low[i] = threshold[0];
+                high[i] = threshold[1];
+            }
+            Pointer handle = symbol.getHandle();
+            Pointer calibrated =
+                    JnaUtils.setCalibTableToQuantizedSymbol(handle, layerNames, low, high);
+            symbol.close();
+            symbol = new Symbol(mxManager, calibrated);
+        }
+
+        MxSymbolBlock quantized = new MxSymbolBlock(manager, symbol);
+        quantized.setInputNames(inputNames);
+        quantized.setCachedOpFlags(block.getCachedOpFlags());
+        setParameters(quantized, params, thresholds, manager);
+        return quantized;
+    }
+
+    /**
+     * Compares the accuracy and the latency of a block and its quantized version.
+     *
+     * <p>The first batch is used to warm up both blocks, and is not included in the latency.
+     *
+     * @param reference the original block
+     * @param quantized the quantized block
+     * @param dataset the dataset to evaluate the blocks on
+     * @param evaluator the {@link Evaluator} that measures the accuracy
+     * @param manager the manager to load the batches with
+     * @return the comparison {@link Report}
+     */
+    public static Report compare(
+            Block reference,
+            Block quantized,
+            Dataset dataset,
+            Evaluator evaluator,
+            NDManager manager) {
+        Evaluator referenceEvaluator = evaluator.duplicate();
+        Evaluator quantizedEvaluator = evaluator.duplicate();
+        referenceEvaluator.reset();
+        quantizedEvaluator.reset();
+        ParameterStore parameterStore = new ParameterStore(manager, false);
+        long referenceTime = 0;
+        long quantizedTime = 0;
+        int numBatches = 0;
+        for (Batch batch : dataset.getData(manager)) {
+            try (Batch b = batch) {
+                long begin = System.nanoTime();
+                NDList referenceOutput = reference.forward(parameterStore, b.getData());
+                JnaUtils.waitAll();
+                long middle = System.nanoTime();
+                NDList quantizedOutput = quantized.forward(parameterStore, b.getData());
+                JnaUtils.waitAll();
+                long end = System.nanoTime();
+                if (numBatches > 0) {
+                    referenceTime += middle - begin;
+                    quantizedTime += end - middle;
+                }
+                ++numBatches;
+                referenceEvaluator.update(b.getLabels(), referenceOutput);
+                quantizedEvaluator.update(b.getLabels(), quantizedOutput);
+                referenceOutput.close();
+                quantizedOutput.close();
+            }
+        }
+        int timedBatches = Math.max(numBatches - 1, 1);
+        return new Report(
+                evaluator.getName(),
+                numBatches,
+                referenceEvaluator.getValue(),
+                quantizedEvaluator.getValue(),
+                referenceTime / timedBatches / 1_000_000d,
+                quantizedTime / timedBatches / 1_000_000d);
+    }
+
+    private Map<String, float[]> calibrate(
+            MxSymbolBlock block, Dataset dataset, String[] calibrationLayers, NDManager manager) {
+        Map<String, float[]> thresholds = new LinkedHashMap<>();
+        Symbol symbol = block.getSymbol().getOutputs(calibrationLayers);
+        try (NDManager subManager = manager.newSubManager()) {
+            MxSymbolBlock outputs = new MxSymbolBlock(subManager, symbol);
+            outputs.setInputNames(new ArrayList<>(block.describeInput().keys()));
+            outputs.setCachedOpFlags(block.getCachedOpFlags());
+            Map<String, Parameter> params = new HashMap<>();
+            for (Parameter parameter : block.getAllParameters()) {
+                params.put(parameter.getName(), parameter);
+            }
+            for (Parameter parameter : outputs.getAllParameters()) {
+                Parameter original = params.get(parameter.getName());
+                if (original != null && original.isInitialized()) {
+                    parameter.setArray(original.getArray());
+                }
+            }
+            ParameterStore parameterStore = new ParameterStore(subManager, false);
+
+            // first pass, the range of each layer
+            float[][] ranges = new float[calibrationLayers.length][];
+            runCalibration(
+                    outputs,
+                    parameterStore,
+                    dataset,
+                    subManager,
+                    (i, values) -> {
+                        float[] range = ranges[i];
+                        if (range == null) {
+                            range = new float[] {Float.MAX_VALUE, -Float.MAX_VALUE};
+                            ranges[i] = range;
+                        }
+                        for (float value : values) {
+                            range[0] = Math.min(range[0], value);
+                            range[1] = Math.max(range[1], value);
+                        }
+                    });
+            if (calibrationMode == CalibrationMode.NAIVE) {
+                for (int i = 0; i < calibrationLayers.length; ++i) {
+                    thresholds.put(calibrationLayers[i], ranges[i]);
+                }
+                return thresholds;
+            }
+
+            // second pass, the histogram of each layer within its range
+            long[][] histograms = new long[calibrationLayers.length][NUM_BINS];
+            runCalibration(
+                    outputs,
+                    parameterStore,
+                    dataset,
+                    subManager,
+                    (i, values) -> {
+                        float threshold = Math.max(Math.abs(ranges[i][0]), Math.abs(ranges[i][1]));
+                        addToHistogram(histograms[i], values, threshold);
+                    });
+            for (int i = 0; i < calibrationLayers.length; ++i) {
+                float[] range = ranges[i];
+                float threshold = Math.max(Math.abs(range[0]), Math.abs(range[1]));
+                int numQuantizedBins = NUM_QUANTIZED_BINS;
+                if (range[0] >= 0 && !"int8".equals(quantizedDataType)) {
+                    // unsigned outputs use the full uint8 range
+                    numQuantizedBins = NUM_QUANTIZED_BINS * 2 + 1;
+                }
+                if (threshold > 0) {
+                    threshold = getOptimalThreshold(histograms[i], threshold, numQuantizedBins);
+                }
+                thresholds.put(calibrationLayers[i], new float[] {-threshold, threshold});
+            }
+        } finally {
+            symbol.close();
+        }
+        return thresholds;
+    }
+
+    private void runCalibration(
+            MxSymbolBlock outputs,
+            ParameterStore parameterStore,
+            Dataset dataset,
+            NDManager manager,
+            LayerCollector collector) {
+        int numBatches = 0;
+        for (Batch batch : dataset.getData(manager)) {
+            try (Batch b = batch) {
+                if (numBatches++ >= calibrationBatches) {
+                    break;
+                }
+                NDList result = outputs.forward(parameterStore, b.getData());
+                for (int i = 0; i < result.size(); ++i) {
+                    NDArray array = result.get(i);
+                    try (NDArray values = array.toType(DataType.FLOAT32, true)) {
+                        collector.collect(i, values.toFloatArray());
+                    }
+                }
+                result.close();
+            }
+        }
+        logger.debug("Calibrated with {} batches", Math.min(numBatches, calibrationBatches));
+    }
+
+    private static void setParameters(
+            MxSymbolBlock quantized,
+            Map<String, Parameter> params,
+            Map<String, float[]> thresholds,
+            NDManager manager) {
+        Map<String, NDArray> values = new HashMap<>();
+        List<String> inputNames = new ArrayList<>(quantized.describeInput().keys());
+        for (Parameter parameter : quantized.getAllParameters()) {
+            String name = parameter.getName();
+            if (inputNames.contains(name) || values.containsKey(name)) {
+                continue;
+            }
+            Parameter original = params.get(name);
+            if (name.endsWith("weight_quantize") || name.endsWith("bias_quantize")) {
+                original = params.get(name.substring(0, name.length() - 9));
+                NDArray array = original.getArray();
+                NDList range = new NDList(array.min(), array.max());
+                MxOpParams opParams = new MxOpParams();
+                opParams.addParam("out_type", "int8");
+                NDList quantizedArray =
+                        ((MxNDManager) manager)
+                                .invoke(
+                                        "_contrib_quantize",
+                                        new NDList(array, range.get(0), range.get(1)),
+                                        opParams);
+                range.close();
+                values.put(name, quantizedArray.get(0));
+                values.put(name + "_min", quantizedArray.get(1));
+                values.put(name + "_max", quantizedArray.get(2));
+            } else if (original != null) {
+                NDArray array = original.getArray().duplicate();
+                array.attach(manager);
+                values.put(name, array);
+            } else if (name.endsWith("_min") || name.endsWith("_max")) {
+                float[] threshold = thresholds.get(name.substring(0, name.length() - 4));
+                if (threshold != null) {
+                    float value = name.endsWith("_min") ? threshold[0] : threshold[1];
+                    values.put(name, manager.create(new float[] {value}));
+                }
+            }
+        }
+        for (Parameter parameter : quantized.getAllParameters()) {
+            String name = parameter.getName();
+            if (inputNames.contains(name)) {
+                continue;
+            }
+            NDArray array = values.get(name);
+            if (array == null) {
+                throw new IllegalStateException("No value for quantized parameter: " + name);
+            }
+            parameter.setArray(array);
+        }
+    }
+
+    private static void addToHistogram(long[] histogram, float[] values, float threshold) {
+        if (threshold <= 0) {
+            histogram[histogram.length / 2] += values.length;
+            return;
+        }
+        float binWidth = 2 * threshold / histogram.length;
+        for (float value : values) {
+            int bin = (int) ((value + threshold) / binWidth);
+            histogram[Math.max(0, Math.min(bin, histogram.length - 1))]++;
+        }
+    }
+
+    /**
+     * Returns the threshold that minimizes the KL divergence between the histogram and its
+     * quantized version.
+     *
+     * @param histogram the histogram of the values in [-threshold, threshold], with an odd number
+     *     of bins
+     * @param threshold the maximum absolute value
+     * @param numQuantizedBins the number of quantized values
+     * @return the optimal threshold
+     */
+    static float getOptimalThreshold(long[] histogram, float threshold, int numQuantizedBins) {
+        int numBins = histogram.length;
+        int zeroBin = numBins / 2;
+        int numHalfQuantizedBins = numQuantizedBins / 2;
+        float binWidth = 2 * threshold / numBins;
+        long[] quantizedBins = new long[numQuantizedBins];
+        float optimal = threshold;
+        double minDivergence = Double.POSITIVE_INFINITY;
+        for (int i = numHalfQuantizedBins; i <= zeroBin; ++i) {
+            int start = zeroBin - i;
+            int stop = zeroBin + i + 1;
+            int size = stop - start;
+
+            // the reference distribution, with the outliers merged into the edge bins
+            double[] p = new double[size];
+            for (int j = 0; j < size; ++j) {
+                p[j] = histogram[start + j];
+            }
+            for (int j = 0; j < start; ++j) {
+                p[0] += histogram[j];
+            }
+            for (int j = stop; j < numBins; ++j) {
+                p[size - 1] += histogram[j];
+            }
+
+            // the distribution quantized to numQuantizedBins values, and expanded back
+            int numMergedBins = size / numQuantizedBins;
+            Arrays.fill(quantizedBins, 0);
+            for (int j = 0; j < numQuantizedBins; ++j) {
+                int end = j == numQuantizedBins - 1 ? size : (j + 1) * numMergedBins;
+                for (int k = j * numMergedBins; k < end; ++k) {
+                    quantizedBins[j] += histogram[start + k];
+                }
+            }
+            double[] q = new double[size];
+            for (int j = 0; j < numQuantizedBins; ++j) {
+                int begin = j * numMergedBins;
+                int end = j == numQuantizedBins - 1 ? size : begin + numMergedBins;
+                int nonZeros = 0;
+                for (int k = begin; k < end; ++k) {
+                    if (p[k] != 0) {
+                        ++nonZeros;
+                    }
+                }
+                if (nonZeros > 0) {
+                    double value = (double) quantizedBins[j] / nonZeros;
+                    for (int k = begin; k < end; ++k) {
+                        q[k] = p[k] == 0 ? 0 : value;
+                    }
+                }
+            }
+
+            double divergence = getDivergence(p, q);
+            if (divergence < minDivergence) {
+                minDivergence = divergence;
+                optimal = (stop - zeroBin - 0.5f) * binWidth;
+            }
+        }
+        return optimal;
+    }
+
+    private static double getDivergence(double[] p, double[] q) {
+        if (!smooth(p) || !smooth(q)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sumP = 0;
+        double sumQ = 0;
+        for (int i = 0; i < p.length; ++i) {
+            sumP += p[i];
+            sumQ += q[i];
+        }
+        double divergence = 0;
+        for (int i = 0; i < p.length; ++i) {
+            double pi = p[i] / sumP;
+            divergence += pi * Math.log(pi / (q[i] / sumQ));
+        }
+        return divergence;
+    }
+
+    private static boolean smooth(double[] distribution) {
+        // moves a small amount of mass to the empty bins, so that the divergence is finite
+        double eps = 0.0001;
+        int zeros = 0;
+        for (double value : distribution) {
+            if (value == 0) {
+                ++zeros;
+            }
+        }
+        int nonZeros = distribution.length - zeros;
+        if (nonZeros == 0) {
+            return false;
+        }
+        double eps1 = eps * zeros / nonZeros;
+        for (int i = 0; i < distribution.length; ++i) {
+            distribution[i] += distribution[i] == 0 ? eps : -eps1;
+            if (distribution[i] <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The ways to calibrate the ranges of the quantized layer outputs. */
+    public enum CalibrationMode {
+        NONE,
+        NAIVE,
+        ENTROPY
+    }
+
+    /** Collects the values of one layer output. */
+    private interface LayerCollector {
+
+        void collect(int layer, float[] values);
+    }
+
+    /** The result of {@link #compare(Block, Block, Dataset, Evaluator, NDManager)}. */
+    public static final class Report {
+
+        private String evaluatorName;
+        private int numBatches;
+        private float referenceAccuracy;
+        private float quantizedAccuracy;
+        private double referenceLatency;
+        private double quantizedLatency;
+
+        Report(
+                String evaluatorName,
+                int numBatches,
+                float referenceAccuracy,
+                float quantizedAccuracy,
+                double referenceLatency,
+                double quantizedLatency) {
+            this.evaluatorName = evaluatorName;
+            this.numBatches = numBatches;
+            this.referenceAccuracy = referenceAccuracy;
+            this.quantizedAccuracy = quantizedAccuracy;
+            this.referenceLatency = referenceLatency;
+            this.quantizedLatency = quantizedLatency;
+        }
+
+        /**
+         * Returns the number of batches that were evaluated.
+         *
+         * @return the number of batches that were evaluated
+         */
+        public int getNumBatches() {
+            return numBatches;
+        }
+
+        /**
+         * Returns the value of the evaluator for the original block.
+         *
+         * @return the value of the evaluator for the original block
+         */
+        public float getReferenceAccuracy() {
+            return referenceAccuracy;
+        }
+
+        /**
+         * Returns the value of the evaluator for the quantized block.
+         *
+         * @return the value of the evaluator for the quantized block
+         */
+        public float getQuantizedAccuracy() {
+            return quantizedAccuracy;
+        }
+
+        /**
+         * Returns the average forward time of the original block per batch in milliseconds.
+         *
+         * @return the average forward time of the original block per batch in milliseconds
+         */
+        public double getReferenceLatency() {
+            return referenceLatency;
+        }
+
+        /**
+         * Returns the average forward time of the quantized block per batch in milliseconds.
+         *
+         * @return the average forward time of the quantized block per batch in milliseconds
+         */
+        public double getQuantizedLatency() {
+            return quantizedLatency;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %.4f -> %.4f, latency: %.3f ms -> %.3f ms (%.2fx) over %d batches",
+                    evaluatorName,
+                    referenceAccuracy,
+                    quantizedAccuracy,
+                    referenceLatency,
+                    quantizedLatency,
+                    referenceLatency / quantizedLatency,
+                    numBatches);
+        }
+    }
+
+    /** The Builder to construct a {@link MxQuantizer}. */
+    public static final class Builder {
+
+        CalibrationMode calibrationMode = CalibrationMode.ENTROPY;
+        int calibrationBatches = 10;
+        String quantizedDataType = "int8";
+        String quantizeMode = "smart";
+        String[] excludedLayers = new String[0];
+        String[] excludedOperators = new String[0];
+
+        /**
+         * Sets the {@link CalibrationMode}, {@link CalibrationMode#ENTROPY} by default.
+         *
+         * @param calibrationMode the {@link CalibrationMode}
+         * @return this Builder
+         */
+        public Builder optCalibrationMode(CalibrationMode calibrationMode) {
+            this.calibrationMode = calibrationMode;
+            return this;
+        }
+
+        /**
+         * Sets the number of batches to calibrate with, 10 by default.
+         *
+         * @param calibrationBatches the number of batches to calibrate with
+         * @return this Builder
+         */
+        public Builder optCalibrationBatches(int calibrationBatches) {
+            this.calibrationBatches = calibrationBatches;
+            return this;
+        }
+
+        /**
+         * Sets the data type of the quantized layer outputs.
+         *
+         * <p>The data type is "int8" by default, "uint8" or "auto" to use uint8 for the outputs
+         * that cannot be negative.
+         *
+         * @param quantizedDataType the data type of the quantized layer outputs
+         * @return this Builder
+         */
+        public Builder optQuantizedDataType(String quantizedDataType) {
+            this.quantizedDataType = quantizedDataType;
+            return this;
+        }
+
+        /**
+         * Sets the quantize mode, "smart" by default.
+         *
+         * <p>The "smart" mode skips the operators that MXNet expects to be slower when quantized,
+         * while the "full" mode quantizes every operator that has a quantized implementation.
+         *
+         * @param quantizeMode the quantize mode
+         * @return this Builder
+         */
+        public Builder optQuantizeMode(String quantizeMode) {
+            this.quantizeMode = quantizeMode;
+            return this;
+        }
+
+        /**
+         * Sets the names of the layers to keep in FP32.
+         *
+         * @param excludedLayers the names of the layers to keep in FP32
+         * @return this Builder
+         */
+        public Builder optExcludedLayers(String... excludedLayers) {
+            this.excludedLayers = excludedLayers;
+            return this;
+        }
+
+        /**
+         * Sets the operators to keep in FP32, for example "Convolution" or "FullyConnected".
+         *
+         * @param excludedOperators the operators to keep in FP32
+         * @return this Builder
+         */
+        public Builder optExcludedOperators(String... excludedOperators) {
+            this.excludedOperators = excludedOperators;
+            return this;
+        }
+
+        /**
+         * Builds a {@link MxQuantizer} with the specified settings.
+         *
+         * @return a new {@link MxQuantizer}
+         */
+        public MxQuantizer build() {
+            if (calibrationBatches < 1 && calibrationMode != CalibrationMode.NONE) {
+                throw new IllegalArgumentException("calibrationBatches must be positive.");
+            }
+            return new MxQuantizer(this);
+        }
+    }
+}
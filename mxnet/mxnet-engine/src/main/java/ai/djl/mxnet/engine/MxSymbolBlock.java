@@ -15,6 +15,7 @@ package ai.djl.mxnet.engine;
 
 import ai.djl.MalformedModelException;
 import ai.djl.mxnet.jna.JnaUtils;
+import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
@@ -25,12 +26,17 @@ import ai.djl.nn.ParameterType;
 import ai.djl.nn.SymbolBlock;
 import ai.djl.training.ParameterStore;
 import ai.djl.util.PairList;
+import com.sun.jna.Pointer;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,6 +54,13 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
 
     private NDManager manager;
     private CachedOp op;
+    private Map<List<Shape>, CachedOpEntry> cachedOps;
+    private int cachedOpCapacity;
+    private long[] batchBuckets;
+    // the indices of the inputs and outputs with a batch axis, null for all of them
+    private int[] batchInputs;
+    private int[] batchOutputs;
+    private Map<String, String> cachedOpFlags;
     private Symbol symbol;
     private List<Parameter> params; // includes input data
     private Map<String, Shape> paramShapes;
@@ -66,6 +79,10 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
         this.manager = manager;
         this.symbol = symbol;
         inputNames = new ArrayList<>();
+        cachedOpFlags = new LinkedHashMap<>();
+        // static_alloc and static_shape are enabled by default
+        cachedOpFlags.put("static_alloc", "1");
+        cachedOpFlags.put("static_shape", "1");
 
         String[] allNames = symbol.getAllNames();
         params = new ArrayList<>(allNames.length);
@@ -138,14 +155,137 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
         return inputData;
     }
 
+    /**
+     * Enables a least-recently-used cache of {@link CachedOp}s keyed by the input shapes.
+     *
+     * <p>A single {@link CachedOp} has to re-plan its memory every time the input shape changes.
+     * With shape bucketing, each distinct set of input shapes gets its own {@link CachedOp} with
+     * static memory allocation, and at most {@code capacity} of them are kept alive.
+     *
+     * <p>If {@code batchBuckets} are provided, the inputs are zero padded along the batch axis
+     * (axis 0) up to the smallest bucket that fits, and the outputs are sliced back to the actual
+     * batch size. This bounds the number of distinct shapes when the batch size varies. Batches
+     * larger than the largest bucket are run without padding.
+     *
+     * <p>By default, every input and output is assumed to have the batch along axis 0, and an
+     * input with another size along axis 0 is rejected. Use {@link #setBatchIndices(int[], int[])}
+     * to tell which inputs and outputs have a batch axis when the others must be left unchanged.
+     *
+     * @param capacity the maximum number of cached ops to keep, or 0 to use a single cached op
+     * @param batchBuckets the batch sizes to pad inputs up to
+     */
+    public synchronized void setShapeBuckets(int capacity, long... batchBuckets) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        clearCachedOps();
+        cachedOpCapacity = capacity;
+        this.batchBuckets = batchBuckets.clone();
+        Arrays.sort(this.batchBuckets);
+        if (capacity > 0) {
+            cachedOps = new LinkedHashMap<>(capacity + 1, 0.75f, true);
+        }
+    }
+
+    /**
+     * Sets which inputs and outputs have the batch along axis 0, when batch buckets are used.
+     *
+     * <p>Only those inputs are padded up to the batch bucket, and only those outputs are sliced
+     * back to the actual batch size. The other inputs and outputs are passed through unchanged,
+     * whatever their size along axis 0. The batch size is taken from the first batched input.
+     *
+     * @param inputIndices the indices of the inputs with a batch axis, or {@code null} for all
+     * @param outputIndices the indices of the outputs with a batch axis, or {@code null} for all
+     * @see #setShapeBuckets(int, long...)
+     */
+    public synchronized void setBatchIndices(int[] inputIndices, int[] outputIndices) {
+        batchInputs = inputIndices == null ? null : inputIndices.clone();
+        batchOutputs = outputIndices == null ? null : outputIndices.clone();
+        if (batchInputs != null) {
+            Arrays.sort(batchInputs);
+        }
+        if (batchOutputs != null) {
+            Arrays.sort(batchOutputs);
+        }
+    }
+
+    /**
+     * Sets the flags used to create the {@link CachedOp}s of this block.
+     *
+     * <p>The flags are passed as is to MXNet, for example {@code static_alloc}, {@code
+     * static_shape}, {@code forward_bulk_size}, {@code backward_bulk_size} and {@code
+     * inline_limit}. The {@code data_indices} and {@code param_indices} flags are always derived
+     * from the block and cannot be set. Cached ops that have already been created are released.
+     *
+     * @param flags the {@link CachedOp} flags
+     */
+    public synchronized void setCachedOpFlags(Map<String, String> flags) {
+        if (flags.containsKey("data_indices") || flags.containsKey("param_indices")) {
+            throw new IllegalArgumentException(
+                    "data_indices and param_indices are derived from the block.");
+        }
+        clearCachedOps();
+        cachedOpFlags = new LinkedHashMap<>(flags);
+    }
+
+    /**
+     * Returns the flags used to create the {@link CachedOp}s of this block.
+     *
+     * @return the flags used to create the {@link CachedOp}s of this block
+     */
+    public synchronized Map<String, String> getCachedOpFlags() {
+        return Collections.unmodifiableMap(cachedOpFlags);
+    }
+
     /** {@inheritDoc} */
     @Override
     public NDList forward(
             ParameterStore parameterStore, NDList inputs, PairList<String, Object> params) {
-        if (op == null) {
-            op = JnaUtils.createCachedOp(this, (MxNDManager) manager);
+        if (cachedOps == null) {
+            return getCachedOp().forward(parameterStore, inputs);
+        }
+
+        long batchSize = getBatchSize(inputs);
+        long bucket = batchSize < 0 ? batchSize : getBatchBucket(batchSize);
+        NDList padded = bucket > batchSize ? padBatch(inputs, batchSize, bucket) : inputs;
+
+        List<Shape> key = new ArrayList<>(padded.size());
+        for (NDArray array : padded) {
+            key.add(array.getShape());
         }
-        return op.forward(parameterStore, inputs);
+        CachedOpEntry entry = acquireCachedOp(key);
+        NDList result;
+        try {
+            result = entry.op.forward(parameterStore, padded);
+        } finally {
+            releaseCachedOp(entry);
+        }
+        if (bucket == batchSize) {
+            return result;
+        }
+
+        NDList ret = new NDList(result.size());
+        String index = "0:" + batchSize;
+        for (int i = 0; i < result.size(); ++i) {
+            NDArray array = result.get(i);
+            if (!isBatched(batchOutputs, i)) {
+                ret.add(array);
+                continue;
+            }
+            Shape shape = array.getShape();
+            if (shape.dimension() == 0 || shape.get(0) != bucket) {
+                throw new IllegalStateException(
+                        "Output "
+                                + i
+                                + " has no batch axis of size "
+                                + bucket
+                                + ": "
+                                + shape
+                                + ", exclude it with setBatchIndices().");
+            }
+            ret.add(array.get(index));
+        }
+        return ret;
     }
 
     /** {@inheritDoc} */
@@ -172,6 +312,8 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
     /** {@inheritDoc} */
     @Override
     public void removeLastBlock() {
+        // the cached ops were created from the old symbol
+        clearCachedOps();
         List<String> layerNames = getLayerNames();
         String layerName = layerNames.get(layerNames.size() - 2);
 
@@ -188,6 +330,71 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>{@code Dropout} and {@code _copy} operators are removed from the symbol, and each {@code
+     * BatchNorm} whose input is produced by a {@code Convolution} or {@code FullyConnected}
+     * operator is folded into the weight and bias of that operator. Parameters that are not loaded
+     * yet prevent the folding of the operators that use them.
+     */
+    @Override
+    public synchronized void optimizeForInference() {
+        Map<String, Parameter> byName = new HashMap<>();
+        for (Parameter parameter : params) {
+            byName.put(parameter.getName(), parameter);
+        }
+        SymbolRewriter rewriter = new SymbolRewriter(symbol.toJson());
+        rewriter.removeIdentities();
+        List<SymbolRewriter.Fold> folds =
+                rewriter.foldBatchNorm(
+                        name -> {
+                            Parameter parameter = byName.get(name);
+                            return parameter != null
+                                    && parameter.isInitialized()
+                                    && !inputNames.contains(name);
+                        });
+        for (SymbolRewriter.Fold fold : folds) {
+            if (fold.newBias) {
+                byName.put(fold.bias, new Parameter(fold.bias, this, ParameterType.BIAS));
+            }
+            try (NDManager subManager = manager.newSubManager()) {
+                NDArray scale = attachCopy(byName.get(fold.var), subManager);
+                scale = scale.add(fold.epsilon).pow(-0.5f);
+                if (!fold.fixGamma) {
+                    scale = scale.mul(attachCopy(byName.get(fold.gamma), subManager));
+                }
+                NDArray mean = attachCopy(byName.get(fold.mean), subManager);
+                NDArray beta = attachCopy(byName.get(fold.beta), subManager);
+                NDArray shift = beta.sub(mean.mul(scale));
+                foldScaleAndShift(byName.get(fold.weight), byName.get(fold.bias), scale, shift);
+            }
+        }
+
+        Pointer handle = JnaUtils.createSymbolFromJson(rewriter.toJson());
+        setSymbol(new Symbol((MxNDManager) manager, handle), byName);
+    }
+
+    /**
+     * Partitions the symbol for an MXNet subgraph backend.
+     *
+     * <p>The backend replaces groups of operators with fused operators, for example "MKLDNN" fuses
+     * {@code Convolution} with the following {@code BatchNorm}, {@code Activation} and
+     * elementwise add operators on CPU.
+     *
+     * @param backend the name of the subgraph backend
+     * @return the descriptions of the fused subgraphs
+     */
+    public synchronized List<String> optimizeFor(String backend) {
+        Map<String, Parameter> byName = new HashMap<>();
+        for (Parameter parameter : params) {
+            byName.put(parameter.getName(), parameter);
+        }
+        Pointer handle = JnaUtils.genBackendSubgraph(symbol.getHandle(), backend);
+        setSymbol(new Symbol((MxNDManager) manager, handle), byName);
+        return SymbolRewriter.describeSubgraphs(symbol.toJson());
+    }
+
     /** {@inheritDoc} */
     @Override
     public Shape getParameterShape(String name, Shape[] inputShapes) {
@@ -241,6 +448,143 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
         }
     }
 
+    private void setSymbol(Symbol newSymbol, Map<String, Parameter> byName) {
+        clearCachedOps();
+        symbol.close();
+        symbol = newSymbol;
+        paramShapes = null;
+        outputShapes = null;
+
+        String[] allNames = symbol.getAllNames();
+        Set<String> auxNameSet = new HashSet<>(Arrays.asList(symbol.getAuxNames()));
+        params = new ArrayList<>(allNames.length);
+        for (String name : allNames) {
+            Parameter parameter = byName.remove(name);
+            if (parameter == null) {
+                boolean requireGrad = !auxNameSet.contains(name);
+                parameter = new Parameter(name, this, inferType(name), requireGrad);
+            }
+            params.add(parameter);
+        }
+        for (Parameter removed : byName.values()) {
+            removed.close();
+        }
+    }
+
+    private synchronized CachedOp getCachedOp() {
+        if (op == null) {
+            op = JnaUtils.createCachedOp(this, (MxNDManager) manager);
+        }
+        return op;
+    }
+
+    private synchronized CachedOpEntry acquireCachedOp(List<Shape> key) {
+        CachedOpEntry entry = cachedOps.get(key);
+        if (entry == null) {
+            entry = new CachedOpEntry(JnaUtils.createCachedOp(this, (MxNDManager) manager));
+            cachedOps.put(key, entry);
+            Iterator<CachedOpEntry> it = cachedOps.values().iterator();
+            while (cachedOps.size() > cachedOpCapacity) {
+                CachedOpEntry eldest = it.next();
+                it.remove();
+                eldest.evicted = true;
+                if (eldest.inUse == 0) {
+                    eldest.op.close();
+                }
+            }
+        }
+        ++entry.inUse;
+        return entry;
+    }
+
+    private synchronized void releaseCachedOp(CachedOpEntry entry) {
+        --entry.inUse;
+        if (entry.evicted && entry.inUse == 0) {
+            entry.op.close();
+        }
+    }
+
+    private synchronized void clearCachedOps() {
+        if (op != null) {
+            op.close();
+            op = null;
+        }
+        if (cachedOps != null) {
+            for (CachedOpEntry entry : cachedOps.values()) {
+                entry.evicted = true;
+                if (entry.inUse == 0) {
+                    entry.op.close();
+                }
+            }
+            cachedOps.clear();
+        }
+    }
+
+    private long getBatchBucket(long batchSize) {
+        for (long bucket : batchBuckets) {
+            if (bucket >= batchSize) {
+                return bucket;
+            }
+        }
+        return batchSize;
+    }
+
+    private long getBatchSize(NDList inputs) {
+        for (int i = 0; i < inputs.size(); ++i) {
+            if (isBatched(batchInputs, i)) {
+                Shape shape = inputs.get(i).getShape();
+                if (shape.dimension() == 0) {
+                    throw new IllegalArgumentException(
+                            "Input "
+                                    + i
+                                    + " has no batch axis, exclude it with setBatchIndices().");
+                }
+                return shape.get(0);
+            }
+        }
+        // no input has a batch axis, there is nothing to pad
+        return -1;
+    }
+
+    private NDList padBatch(NDList inputs, long batchSize, long bucket) {
+        NDList padded = new NDList(inputs.size());
+        for (int i = 0; i < inputs.size(); ++i) {
+            NDArray array = inputs.get(i);
+            if (!isBatched(batchInputs, i)) {
+                padded.add(array);
+                continue;
+            }
+            Shape shape = array.getShape();
+            if (shape.dimension() == 0 || shape.get(0) != batchSize) {
+                throw new IllegalArgumentException(
+                        "Input "
+                                + i
+                                + " does not have the batch size "
+                                + batchSize
+                                + " along axis 0: "
+                                + shape
+                                + ", exclude it with setBatchIndices().");
+            }
+            Shape padShape = new Shape(bucket - batchSize).addAll(shape.slice(1));
+            NDArray zeros =
+                    array.getManager().zeros(padShape, array.getDataType(), array.getDevice());
+            NDArray concat = array.concat(zeros, 0);
+            concat.setName(array.getName());
+            padded.add(concat);
+        }
+        return padded;
+    }
+
+    private static boolean isBatched(int[] batchIndices, int index) {
+        return batchIndices == null || Arrays.binarySearch(batchIndices, index) >= 0;
+    }
+
+    private static NDArray attachCopy(Parameter parameter, NDManager manager) {
+        NDArray array = parameter.getArray().duplicate();
+        array.attach(manager);
+        return array;
+    }
+
     private static ParameterType inferType(String name) {
         if (name.endsWith("bias")) {
             return ParameterType.BIAS;
@@ -255,4 +599,16 @@ public class MxSymbolBlock extends ParameterBlock implements SymbolBlock {
         }
         return ParameterType.OTHER;
     }
+
+    /** A {@link CachedOp} in the shape bucket cache and the number of forwards using it. */
+    private static final class CachedOpEntry {
+
+        CachedOp op;
+        int inUse;
+        boolean evicted;
+
+        CachedOpEntry(CachedOp op) {
+            this.op = op;
+        }
+    }
 }
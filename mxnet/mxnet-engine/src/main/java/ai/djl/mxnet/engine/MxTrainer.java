@@ -21,6 +21,7 @@ import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.nn.Parameter;
+import ai.djl.training.GradReq;
 import ai.djl.training.GradientCollector;
 import ai.djl.training.LocalParameterServer;
 import ai.djl.training.ParameterServer;
@@ -31,9 +32,15 @@ import ai.djl.training.TrainingListener;
 import ai.djl.training.dataset.Batch;
 import ai.djl.training.evaluator.Evaluator;
 import ai.djl.training.loss.Loss;
+import ai.djl.training.optimizer.Optimizer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,11 +49,14 @@ public class MxTrainer implements Trainer {
 
     private static final Logger logger = LoggerFactory.getLogger(MxTrainer.class);
 
+    private static final AtomicInteger TRAINER_NUMBER = new AtomicInteger();
+
     private MxModel model;
     private MxNDManager manager;
     private Metrics metrics;
     private List<TrainingListener> listeners;
     private Device[] devices;
+    private ParameterServer parameterServer;
     private ParameterStore parameterStore;
     private List<Evaluator> trainingEvaluators;
     private List<Evaluator> validateEvaluators;
@@ -55,6 +65,10 @@ public class MxTrainer implements Trainer {
     long batchBeginTime;
 
     private boolean gradientsChecked;
+    private LeakDetector.AllocationSite allocationSite;
+    private ExecutorService executor;
+    private int gradientAccumulation;
+    private int accumulatedBatches;
 
     /**
      * Creates an instance of {@code MxTrainer} with the given {@link MxModel} and {@link
@@ -66,6 +80,9 @@ public class MxTrainer implements Trainer {
     MxTrainer(MxModel model, TrainingConfig trainingConfig) {
         this.model = model;
         manager = (MxNDManager) model.getNDManager().newSubManager();
+        if (LeakDetector.isEnabled()) {
+            allocationSite = LeakDetector.capture(true);
+        }
         devices = trainingConfig.getDevices();
         trainingLoss = trainingConfig.getLossFunction();
         if (trainingLoss == null) {
@@ -82,12 +99,41 @@ public class MxTrainer implements Trainer {
         // do not mess up with duplication of evaluators
         validateEvaluators.add(validationLoss);
 
-        // ParameterServer parameterServer = new MxParameterServer(trainingConfig.getOptimizer());
-        ParameterServer parameterServer = new LocalParameterServer(trainingConfig.getOptimizer());
+        Optimizer optimizer = trainingConfig.getOptimizer();
+        String parameterServerType = trainingConfig.getParameterServerType();
+        if (parameterServerType == null) {
+            parameterServer = new LocalParameterServer(optimizer);
+        } else {
+            parameterServer = new MxParameterServer(optimizer, parameterServerType);
+        }
 
         parameterStore = new ParameterStore(manager, false);
         parameterStore.setParameterServer(parameterServer, devices);
 
+        gradientAccumulation = trainingConfig.getGradientAccumulation();
+        if (gradientAccumulation < 1) {
+            throw new IllegalArgumentException(
+                    "gradientAccumulation must be positive: " + gradientAccumulation);
+        }
+        if (gradientAccumulation > 1) {
+            parameterStore.setGradReq(GradReq.ADD);
+        }
+
+        if (trainingConfig.isThreadPerDevice() && devices.length > 1) {
+            int id = TRAINER_NUMBER.incrementAndGet();
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor =
+                    Executors.newFixedThreadPool(
+                            devices.length,
+                            r -> {
+                                String name =
+                                        "djl-trainer-" + id + '-' + threadNumber.incrementAndGet();
+                                Thread thread = new Thread(r, name);
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+
         listeners = trainingConfig.getTrainingListeners();
         listeners.forEach(listener -> listener.onTrainingBegin(this));
     }
@@ -113,25 +159,34 @@ public class MxTrainer implements Trainer {
         return new MxGradientCollector();
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If {@link TrainingConfig#isThreadPerDevice()} is set, each split of the batch is run on
+     * its own thread, with its own autograd recording state.
+     */
     @Override
     public void trainBatch(Batch batch) {
         Batch[] splits = batch.split(devices, false);
-        try (GradientCollector collector = new MxGradientCollector()) {
-            for (Batch split : splits) {
-                NDList data = split.getData();
-                NDList labels = split.getLabels();
-                NDList preds = forward(data);
-
-                long time = System.nanoTime();
-                NDArray loss = trainingLoss.getLoss(labels, preds);
-
-                collector.backward(loss);
-                addMetric("backward", time);
-                time = System.nanoTime();
-
-                updateEvaluators(labels, preds);
-                addMetric("training-metrics", time);
+        if (executor != null && splits.length > 1) {
+            trainSplits(splits);
+        } else {
+            try (GradientCollector collector = new MxGradientCollector()) {
+                for (Batch split : splits) {
+                    NDList data = split.getData();
+                    NDList labels = split.getLabels();
+                    NDList preds = forward(data);
+
+                    long time = System.nanoTime();
+                    NDArray loss = trainingLoss.getLoss(labels, preds);
+
+                    collector.backward(loss);
+                    addMetric("backward", time);
+                    time = System.nanoTime();
+
+                    updateEvaluators(labels, preds);
+                    addMetric("training-metrics", time);
+                }
             }
         }
 
@@ -140,6 +195,66 @@ public class MxTrainer implements Trainer {
         batchBeginTime = System.nanoTime();
 
         listeners.forEach(listener -> listener.onTrainingBatch(this));
+        LeakDetector.batchCompleted();
+    }
+
+    private void trainSplits(Batch[] splits) {
+        List<Future<NDList>> futures = new ArrayList<>(splits.length);
+        for (Batch split : splits) {
+            futures.add(executor.submit(() -> trainSplit(split)));
+        }
+
+        // wait for every split, even after a failure, before the gradients are used
+        NDList[] preds = new NDList[splits.length];
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (int i = 0; i < splits.length; ++i) {
+            while (true) {
+                try {
+                    preds[i] = futures.get(i).get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        Throwable cause = e.getCause();
+                        failure =
+                                cause instanceof RuntimeException
+                                        ? (RuntimeException) cause
+                                        : new IllegalStateException(cause);
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        long time = System.nanoTime();
+        for (int i = 0; i < splits.length; ++i) {
+            NDList labels = splits[i].getLabels();
+            NDList pred = preds[i];
+            trainingEvaluators.forEach(evaluator -> evaluator.update(labels, pred));
+        }
+        addMetric("training-metrics", time);
+    }
+
+    private NDList trainSplit(Batch split) {
+        // autograd recording is a per thread state in MXNet
+        try (GradientCollector collector = new MxGradientCollector()) {
+            NDList preds = forward(split.getData());
+
+            long time = System.nanoTime();
+            NDArray loss = trainingLoss.getLoss(split.getLabels(), preds);
+
+            collector.backward(loss);
+            addMetric("backward", time);
+            return preds;
+        }
     }
 
     /** {@inheritDoc} */
@@ -173,12 +288,21 @@ public class MxTrainer implements Trainer {
     /** {@inheritDoc} */
     @Override
     public void step() {
+        if (++accumulatedBatches < gradientAccumulation) {
+            // keep adding to the gradients until enough batches are accumulated
+            return;
+        }
+        accumulatedBatches = 0;
+
         if (!gradientsChecked) {
             checkGradients();
         }
 
         long begin = System.nanoTime();
         parameterStore.updateAllParameters();
+        if (gradientAccumulation > 1) {
+            parameterStore.zeroGradients();
+        }
         addMetric("step", begin);
     }
 
@@ -330,7 +454,9 @@ public class MxTrainer implements Trainer {
     @Override
     protected void finalize() throws Throwable {
         if (manager.isOpen()) {
-            if (logger.isDebugEnabled()) {
+            if (allocationSite != null) {
+                LeakDetector.reportUnclosed(getClass().getSimpleName(), allocationSite);
+            } else if (logger.isDebugEnabled()) {
                 logger.warn("Model was not closed explicitly: {}", getClass().getSimpleName());
             }
             close();
@@ -343,7 +469,12 @@ public class MxTrainer implements Trainer {
     public void close() {
         listeners.forEach(listener -> listener.onTrainingEnd(this));
 
+        if (executor != null) {
+            executor.shutdown();
+        }
         parameterStore.sync();
+        parameterStore.restoreGradReq();
+        parameterServer.close();
         manager.close();
     }
 
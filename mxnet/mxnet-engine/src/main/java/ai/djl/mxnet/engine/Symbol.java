@@ -181,6 +181,37 @@ public class Symbol extends NativeResource {
         return new Symbol(manager, pointer);
     }
 
+    /**
+     * Returns a {@code Symbol} that outputs the given outputs, which can be internal outputs.
+     *
+     * @param names the names of the outputs
+     * @return a {@code Symbol} with the given outputs
+     * @throws IllegalArgumentException Thrown if an output does not exist
+     */
+    public Symbol getOutputs(String... names) {
+        try (Symbol internals = getInternals()) {
+            String[] out = JnaUtils.listSymbolOutputs(internals.getHandle());
+            Pointer[] outputs = new Pointer[names.length];
+            try {
+                for (int i = 0; i < names.length; ++i) {
+                    int index = Utils.indexOf(out, names[i]);
+                    if (index < 0) {
+                        throw new IllegalArgumentException(
+                                "Cannot find output that matches name: " + names[i]);
+                    }
+                    outputs[i] = JnaUtils.getSymbolOutput(internals.getHandle(), index);
+                }
+                return new Symbol(manager, JnaUtils.createSymbolGroup(outputs));
+            } finally {
+                for (Pointer output : outputs) {
+                    if (output != null) {
+                        JnaUtils.freeSymbol(output);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Returns the list of names for all internal outputs.
      *
@@ -227,6 +258,24 @@ public class Symbol extends NativeResource {
         return shapesMap;
     }
 
+    /**
+     * Returns the JSON representation of this {@code Symbol}.
+     *
+     * @return the JSON representation of this {@code Symbol}
+     */
+    public String toJson() {
+        return JnaUtils.symbolToJson(getHandle());
+    }
+
+    /**
+     * Saves this {@code Symbol} to a JSON file.
+     *
+     * @param path the path of the file
+     */
+    public void save(String path) {
+        JnaUtils.saveSymbol(getHandle(), path);
+    }
+
     /*
 
     public String debugStr() {
@@ -247,10 +296,6 @@ public class Symbol extends NativeResource {
         return JnaUtils.listSymbolAttr(getHandle());
     }
 
-    public void save(String path) {
-        JnaUtils.saveSymbol(getHandle(), path);
-    }
-
     public Symbol compose(String name, String[] keys) {
         return new Symbol(manager, JnaUtils.compose(getHandle(), name, keys));
     }
@@ -259,10 +304,6 @@ public class Symbol extends NativeResource {
         JnaUtils.compose(getHandle(), name, symbols.values().toArray(JnaUtils.EMPTY_ARRAY));
     }
 
-    public String toJson() {
-        return JnaUtils.symbolToJson(getHandle());
-    }
-
      */
 
     /** {@inheritDoc} */
@@ -0,0 +1,522 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * {@code SymbolRewriter} rewrites the JSON of an MXNet symbol for inference (internal).
+ *
+ * <p>It removes {@code Dropout} and {@code _copy} operators, and finds the {@code BatchNorm}
+ * operators that can be folded into the {@code Convolution} or {@code FullyConnected} operator
+ * that produces their input. Computing the folded parameter values is left to the caller.
+ */
+final class SymbolRewriter {
+
+    private static final Set<String> IDENTITY_OPS =
+            new HashSet<>(Arrays.asList("Dropout", "_copy", "identity"));
+
+    private Map<String, Object> graph;
+    private List<Map<String, Object>> nodes;
+    // node id -> the entry that replaces the first output of the node
+    private Map<Integer, List<Object>> aliases;
+    private List<Fold> folds;
+
+    @SuppressWarnings("unchecked")
+    SymbolRewriter(String json) {
+        graph = (Map<String, Object>) new JsonParser(json).parseValue();
+        nodes = new ArrayList<>();
+        for (Object node : (List<Object>) graph.get("nodes")) {
+            nodes.add((Map<String, Object>) node);
+        }
+        aliases = new HashMap<>();
+        folds = new ArrayList<>();
+    }
+
+    /**
+     * Returns a description of each operator of a symbol that runs a subgraph.
+     *
+     * @param json the JSON of the symbol
+     * @return the descriptions, like "conv0 (_sg_mkldnn_conv: Convolution, Activation)"
+     */
+    @SuppressWarnings("unchecked")
+    static List<String> describeSubgraphs(String json) {
+        Map<String, Object> graph = (Map<String, Object>) new JsonParser(json).parseValue();
+        List<String> descriptions = new ArrayList<>();
+        for (Object item : (List<Object>) graph.get("nodes")) {
+            Map<String, Object> node = (Map<String, Object>) item;
+            Object subgraphs = node.get("subgraphs");
+            if (subgraphs == null) {
+                continue;
+            }
+            List<String> ops = new ArrayList<>();
+            for (Object subgraph : (List<Object>) subgraphs) {
+                for (Object inner : (List<Object>) ((Map<String, Object>) subgraph).get("nodes")) {
+                    Object op = ((Map<String, Object>) inner).get("op");
+                    if (!"null".equals(op)) {
+                        ops.add((String) op);
+                    }
+                }
+            }
+            String ret = node.get("name") + " (" + node.get("op") + ": " + String.join(", ", ops);
+            descriptions.add(ret + ')');
+        }
+        return descriptions;
+    }
+
+    /** Removes the operators that do nothing at inference time. */
+    void removeIdentities() {
+        Map<List<Integer>, Integer> uses = countUses();
+        for (int i = 0; i < nodes.size(); ++i) {
+            Map<String, Object> node = nodes.get(i);
+            if (!IDENTITY_OPS.contains(node.get("op")) || getInputs(node).size() != 1) {
+                continue;
+            }
+            // the mask output of Dropout must not be used
+            if (uses.getOrDefault(Arrays.asList(i, 1), 0) == 0) {
+                aliases.put(i, getInputs(node).get(0));
+            }
+        }
+    }
+
+    /**
+     * Finds the {@code BatchNorm} operators that can be folded, and rewires the graph around them.
+     *
+     * @param isParameter tells whether a variable is a parameter with a value
+     * @return the folds that the caller must apply to the parameter values
+     */
+    List<Fold> foldBatchNorm(Predicate<String> isParameter) {
+        Map<List<Integer>, Integer> uses = countUses();
+        for (int i = 0; i < nodes.size(); ++i) {
+            Map<String, Object> node = nodes.get(i);
+            if (!"BatchNorm".equals(node.get("op"))) {
+                continue;
+            }
+            Map<String, Object> attrs = getAttrs(node);
+            List<List<Object>> inputs = getInputs(node);
+            if (getInt(attrs, "axis", 1) != 1
+                    || getBoolean(attrs, "output_mean_var", false)
+                    || inputs.size() != 5) {
+                continue;
+            }
+            List<Object> data = resolve(inputs.get(0));
+            int producerId = getNodeId(data);
+            Map<String, Object> producer = nodes.get(producerId);
+            Object op = producer.get("op");
+            Map<String, Object> producerAttrs = getAttrs(producer);
+            boolean linear = "FullyConnected".equals(op);
+            if (getOutputIndex(data) != 0
+                    || !(linear || "Convolution".equals(op))
+                    || (linear && !getBoolean(producerAttrs, "flatten", true))
+                    || uses.getOrDefault(Arrays.asList(producerId, 0), 0) != 1) {
+                continue;
+            }
+            String[] variables = new String[4];
+            boolean foldable = true;
+            for (int j = 0; j < 4; ++j) {
+                variables[j] = getVariable(inputs.get(j + 1));
+                foldable &= variables[j] != null && isParameter.test(variables[j]);
+            }
+            List<List<Object>> producerInputs = getInputs(producer);
+            String weight = getVariable(producerInputs.get(1));
+            boolean noBias = getBoolean(producerAttrs, "no_bias", false);
+            String bias = noBias ? null : getVariable(producerInputs.get(2));
+            if (!foldable
+                    || weight == null
+                    || !isParameter.test(weight)
+                    || (!noBias && (bias == null || !isParameter.test(bias)))) {
+                continue;
+            }
+
+            if (noBias) {
+                bias = producer.get("name") + "_bias";
+                Map<String, Object> variable = new LinkedHashMap<>();
+                variable.put("op", "null");
+                variable.put("name", bias);
+                variable.put("inputs", new ArrayList<>());
+                nodes.add(variable);
+                producerInputs.add(new ArrayList<>(Arrays.asList(nodes.size() - 1, 0, 0)));
+                producerAttrs.put("no_bias", "False");
+            }
+            aliases.put(i, data);
+            folds.add(
+                    new Fold(
+                            variables,
+                            getFloat(attrs, "eps", 1e-3f),
+                            getBoolean(attrs, "fix_gamma", true),
+                            weight,
+                            bias,
+                            noBias));
+        }
+        return folds;
+    }
+
+    /**
+     * Returns the JSON of the rewritten symbol.
+     *
+     * @return the JSON of the rewritten symbol
+     */
+    String toJson() {
+        // emit the reachable nodes in topological order
+        List<Map<String, Object>> ordered = new ArrayList<>();
+        Map<Integer, Integer> ids = new HashMap<>();
+        List<Object> argNodes = new ArrayList<>();
+        List<Object> heads = new ArrayList<>();
+        for (List<Object> head : getEntries(graph.get("heads"))) {
+            heads.add(visit(resolve(head), ordered, ids, argNodes));
+        }
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put("nodes", ordered);
+        ret.put("arg_nodes", argNodes);
+        ret.put("heads", heads);
+        if (graph.containsKey("attrs")) {
+            ret.put("attrs", graph.get("attrs"));
+        }
+        StringBuilder sb = new StringBuilder();
+        writeValue(sb, ret);
+        return sb.toString();
+    }
+
+    private List<Object> visit(
+            List<Object> entry,
+            List<Map<String, Object>> ordered,
+            Map<Integer, Integer> ids,
+            List<Object> argNodes) {
+        int nodeId = getNodeId(entry);
+        Integer id = ids.get(nodeId);
+        if (id == null) {
+            Map<String, Object> node = nodes.get(nodeId);
+            List<Object> inputs = new ArrayList<>();
+            for (List<Object> input : getInputs(node)) {
+                inputs.add(visit(resolve(input), ordered, ids, argNodes));
+            }
+            Map<String, Object> copy = new LinkedHashMap<>(node);
+            copy.put("inputs", inputs);
+            id = ordered.size();
+            ordered.add(copy);
+            ids.put(nodeId, id);
+            if ("null".equals(node.get("op"))) {
+                argNodes.add(id);
+            }
+        }
+        List<Object> ret = new ArrayList<>(entry);
+        ret.set(0, id);
+        return ret;
+    }
+
+    private List<Object> resolve(List<Object> entry) {
+        List<Object> ret = entry;
+        List<Object> alias;
+        while (getOutputIndex(ret) == 0 && (alias = aliases.get(getNodeId(ret))) != null) {
+            ret = alias;
+        }
+        return ret;
+    }
+
+    private Map<List<Integer>, Integer> countUses() {
+        Map<List<Integer>, Integer> uses = new HashMap<>();
+        List<List<Object>> entries = new ArrayList<>(getEntries(graph.get("heads")));
+        for (Map<String, Object> node : nodes) {
+            entries.addAll(getInputs(node));
+        }
+        for (List<Object> entry : entries) {
+            List<Object> resolved = resolve(entry);
+            List<Integer> key = Arrays.asList(getNodeId(resolved), getOutputIndex(resolved));
+            uses.merge(key, 1, Integer::sum);
+        }
+        return uses;
+    }
+
+    private String getVariable(List<Object> entry) {
+        Map<String, Object> node = nodes.get(getNodeId(resolve(entry)));
+        return "null".equals(node.get("op")) ? (String) node.get("name") : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getAttrs(Map<String, Object> node) {
+        // older versions of MXNet write the attributes as "attr" or "param"
+        for (String key : new String[] {"attrs", "attr", "param"}) {
+            Object attrs = node.get(key);
+            if (attrs != null) {
+                return (Map<String, Object>) attrs;
+            }
+        }
+        Map<String, Object> attrs = new LinkedHashMap<>();
+        node.put("attrs", attrs);
+        return attrs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Object>> getInputs(Map<String, Object> node) {
+        Object inputs = node.get("inputs");
+        if (inputs == null) {
+            return Collections.emptyList();
+        }
+        return (List<List<Object>>) inputs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Object>> getEntries(Object entries) {
+        return (List<List<Object>>) entries;
+    }
+
+    private static int getNodeId(List<Object> entry) {
+        return ((Number) entry.get(0)).intValue();
+    }
+
+    private static int getOutputIndex(List<Object> entry) {
+        return ((Number) entry.get(1)).intValue();
+    }
+
+    private static int getInt(Map<String, Object> attrs, String key, int defaultValue) {
+        Object value = attrs.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+
+    private static float getFloat(Map<String, Object> attrs, String key, float defaultValue) {
+        Object value = attrs.get(key);
+        return value == null ? defaultValue : Float.parseFloat(value.toString().trim());
+    }
+
+    private static boolean getBoolean(Map<String, Object> attrs, String key, boolean defaultValue) {
+        Object value = attrs.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        String str = value.toString().trim();
+        return "true".equalsIgnoreCase(str) || "1".equals(str);
+    }
+
+    private static void writeValue(StringBuilder sb, Object value) {
+        if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                writeValue(sb, entry.getKey());
+                sb.append(':');
+                writeValue(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (List<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                writeValue(sb, item);
+            }
+            sb.append(']');
+        } else if (value instanceof String) {
+            sb.append('"');
+            for (char c : ((String) value).toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        } else {
+            sb.append(value);
+        }
+    }
+
+    /** A {@code BatchNorm} operator folded into the weight and bias of the preceding operator. */
+    static final class Fold {
+
+        String gamma;
+        String beta;
+        String mean;
+        String var;
+        float epsilon;
+        boolean fixGamma;
+        String weight;
+        String bias;
+        boolean newBias;
+
+        Fold(
+                String[] variables,
+                float epsilon,
+                boolean fixGamma,
+                String weight,
+                String bias,
+                boolean newBias) {
+            gamma = variables[0];
+            beta = variables[1];
+            mean = variables[2];
+            var = variables[3];
+            this.epsilon = epsilon;
+            this.fixGamma = fixGamma;
+            this.weight = weight;
+            this.bias = bias;
+            this.newBias = newBias;
+        }
+    }
+
+    /** A minimal parser for the JSON written by MXNet. */
+    private static final class JsonParser {
+
+        private String json;
+        private int pos;
+
+        JsonParser(String json) {
+            this.json = json;
+        }
+
+        Object parseValue() {
+            skipWhitespace();
+            char c = json.charAt(pos);
+            switch (c) {
+                case '{':
+                    return parseObject();
+                case '[':
+                    return parseArray();
+                case '"':
+                    return parseString();
+                case 't':
+                    expect("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expect("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expect("null");
+                    return null;
+                default:
+                    return parseNumber();
+            }
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            ++pos;
+            skipWhitespace();
+            if (json.charAt(pos) == '}') {
+                ++pos;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(":");
+                map.put(key, parseValue());
+                skipWhitespace();
+                if (json.charAt(pos++) == '}') {
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> parseArray() {
+            List<Object> list = new ArrayList<>();
+            ++pos;
+            skipWhitespace();
+            if (json.charAt(pos) == ']') {
+                ++pos;
+                return list;
+            }
+            while (true) {
+                list.add(parseValue());
+                skipWhitespace();
+                if (json.charAt(pos++) == ']') {
+                    return list;
+                }
+            }
+        }
+
+        private String parseString() {
+            expect("\"");
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                } else if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                c = json.charAt(pos++);
+                switch (c) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(c);
+                        break;
+                }
+            }
+        }
+
+        private Number parseNumber() {
+            int start = pos;
+            while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+                ++pos;
+            }
+            String number = json.substring(start, pos);
+            if (number.isEmpty()) {
+                throw new IllegalArgumentException("Invalid symbol JSON at " + start);
+            }
+            if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                return Double.parseDouble(number);
+            }
+            return Long.parseLong(number);
+        }
+
+        private void expect(String token) {
+            if (!json.startsWith(token, pos)) {
+                throw new IllegalArgumentException("Invalid symbol JSON at " + pos);
+            }
+            pos += token.length();
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                ++pos;
+            }
+        }
+    }
+}
@@ -12,14 +12,11 @@
  */
 package ai.djl.mxnet.jna;
 
-import ai.djl.mxnet.engine.MxNDArray;
 import ai.djl.mxnet.engine.MxNDManager;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDManager;
-import ai.djl.ndarray.types.SparseFormat;
 import ai.djl.util.PairList;
 import com.sun.jna.Pointer;
-import com.sun.jna.ptr.PointerByReference;
 import java.util.List;
 
 /** A FunctionInfo represents an operator (ie function) within the MXNet Engine. */
@@ -27,11 +24,17 @@ public class FunctionInfo {
 
     private Pointer handle;
     private String name;
+    private String opName;
     private PairList<String, String> arguments;
 
-    FunctionInfo(Pointer pointer, String functionName, PairList<String, String> arguments) {
+    FunctionInfo(
+            Pointer pointer,
+            String functionName,
+            String opName,
+            PairList<String, String> arguments) {
         this.handle = pointer;
         this.name = functionName;
+        this.opName = opName;
         this.arguments = arguments;
     }
 
@@ -43,13 +46,10 @@ public class FunctionInfo {
      * @param dest the destination NDArray(s) to be overwritten with the result of the operator
      * @param params the non-NDArray arguments to the operator. Should be a {@code PairList<String,
      *     String>}
-     * @return the error code or zero for no errors
      */
-    public int invoke(
+    public void invoke(
             NDManager manager, NDArray[] src, NDArray[] dest, PairList<String, ?> params) {
-        PointerArray srcHandles = JnaUtils.toPointerArray(src);
-        PointerByReference destRef = new PointerByReference(JnaUtils.toPointerArray(dest));
-        return JnaUtils.imperativeInvoke(handle, srcHandles, destRef, params).size();
+        PreparedOp.of(this, params).invoke(src, dest);
     }
 
     /**
@@ -59,36 +59,19 @@ public class FunctionInfo {
      * @param src the input NDArray(s) to the operator
      * @param params the non-NDArray arguments to the operator. Should be a {@code PairList<String,
      *     String>}
-     * @return the error code or zero for no errors
+     * @return the output NDArray(s) of the operator
      */
     public NDArray[] invoke(NDManager manager, NDArray[] src, PairList<String, ?> params) {
-        PointerArray srcHandles = JnaUtils.toPointerArray(src);
-        return invoke((MxNDManager) manager, srcHandles, params);
+        return PreparedOp.of(this, params).invokeAll((MxNDManager) manager, src);
     }
 
     /**
-     * Calls an operator with the given arguments.
+     * Returns the native handle of the operator.
      *
-     * @param manager the manager to attach the result to
-     * @param src the input NDArray pointers to the operator
-     * @param params the non-NDArray arguments to the operator. Should be a {@code PairList<String,
-     *     String>}
-     * @return the error code or zero for no errors
+     * @return the native handle of the operator
      */
-    private NDArray[] invoke(MxNDManager manager, PointerArray src, PairList<String, ?> params) {
-        PointerByReference destRef = new PointerByReference();
-
-        PairList<Pointer, SparseFormat> pairList =
-                JnaUtils.imperativeInvoke(handle, src, destRef, params);
-        return pairList.stream()
-                .map(
-                        pair -> {
-                            if (pair.getValue() != SparseFormat.DENSE) {
-                                return manager.create(pair.getKey(), pair.getValue());
-                            }
-                            return manager.create(pair.getKey());
-                        })
-                .toArray(MxNDArray[]::new);
+    Pointer getHandle() {
+        return handle;
     }
 
     /**
@@ -100,6 +83,15 @@ public class FunctionInfo {
         return name;
     }
 
+    /**
+     * Returns the name under which the operator is registered in MXNet.
+     *
+     * @return the name under which the operator is registered in MXNet
+     */
+    String getOpName() {
+        return opName;
+    }
+
     /**
      * Returns the names of the params to the operator.
      *
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.jna;
+
+import ai.djl.mxnet.engine.MxNDArray;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import com.sun.jna.Pointer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code GraphTracer} records the operators invoked by the current thread as an MXNet symbol
+ * graph (internal).
+ *
+ * <p>The NDArrays that are known before tracing, such as the inputs and the parameters of a block,
+ * become the variables of the graph. Every operator that is invoked while the tracer is active
+ * becomes a node of the graph. If an operator reads an NDArray that is neither a variable nor the
+ * output of a recorded operator, for example an NDArray whose values were set from Java, the
+ * computation cannot be expressed as a graph and the trace fails.
+ */
+public final class GraphTracer implements AutoCloseable {
+
+    private static final ThreadLocal<GraphTracer> CURRENT = new ThreadLocal<>();
+    // cheap check on the hot path of every operator call
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    private Map<Pointer, String> variables;
+    private Map<Pointer, String> entries;
+    private List<String> nodes;
+    private List<Integer> argNodes;
+    private String failure;
+
+    private GraphTracer(Map<Pointer, String> variables) {
+        this.variables = variables;
+        entries = new HashMap<>();
+        nodes = new ArrayList<>();
+        argNodes = new ArrayList<>();
+    }
+
+    /**
+     * Starts tracing the operators invoked by the current thread.
+     *
+     * @param variables the native handles of the NDArrays that are inputs of the graph, and their
+     *     names
+     * @return the active {@code GraphTracer}
+     */
+    public static GraphTracer start(Map<Pointer, String> variables) {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A graph is already being traced on this thread.");
+        }
+        GraphTracer tracer = new GraphTracer(variables);
+        CURRENT.set(tracer);
+        ACTIVE.incrementAndGet();
+        return tracer;
+    }
+
+    /**
+     * Returns the JSON of the traced graph with the given outputs.
+     *
+     * @param outputs the NDArrays computed by the traced operators that are the outputs of the
+     *     graph
+     * @return the JSON of the symbol, or {@code null} if the trace failed
+     */
+    public String toJson(NDList outputs) {
+        if (failure != null) {
+            return null;
+        }
+        StringBuilder heads = new StringBuilder();
+        for (NDArray output : outputs) {
+            String entry = entries.get(((MxNDArray) output).getHandle());
+            if (entry == null) {
+                // an input returned as is, or an array computed outside of the trace
+                failure = "an output is not computed by the traced operators";
+                return null;
+            }
+            if (heads.length() > 0) {
+                heads.append(',');
+            }
+            heads.append(entry);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"nodes\":[").append(String.join(",", nodes)).append("],\"arg_nodes\":[");
+        for (int i = 0; i < argNodes.size(); ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(argNodes.get(i));
+        }
+        sb.append("],\"heads\":[")
+                .append(heads)
+                .append("],\"attrs\":{\"mxnet_version\":[\"int\",")
+                .append(JnaUtils.getVersion())
+                .append("]}}");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the reason why the trace failed.
+     *
+     * @return the reason why the trace failed, or {@code null} if it did not fail
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /** Stops tracing. */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+            ACTIVE.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records an operator call if a graph is being traced on the current thread.
+     *
+     * @param opName the name of the operator
+     * @param keys the names of the parameters
+     * @param values the values of the parameters
+     * @param src the input NDArrays
+     * @param outputs the native array of output handles
+     * @param numOutputs the number of outputs
+     */
+    static void record(
+            String opName,
+            String[] keys,
+            String[] values,
+            NDArray[] src,
+            Pointer outputs,
+            int numOutputs) {
+        if (ACTIVE.get() == 0) {
+            return;
+        }
+        GraphTracer tracer = CURRENT.get();
+        if (tracer != null && tracer.failure == null) {
+            tracer.addNode(opName, keys, values, src, outputs.getPointerArray(0, numOutputs));
+        }
+    }
+
+    private void addNode(
+            String opName, String[] keys, String[] values, NDArray[] src, Pointer[] outputs) {
+        StringBuilder inputs = new StringBuilder();
+        for (NDArray array : src) {
+            String entry = getEntry(((MxNDArray) array).getHandle());
+            if (entry == null) {
+                failure = "an input of " + opName + " is not computed by the traced operators";
+                return;
+            }
+            if (inputs.length() > 0) {
+                inputs.append(',');
+            }
+            inputs.append(entry);
+        }
+        int id = nodes.size();
+        StringBuilder node = new StringBuilder();
+        node.append("{\"op\":\"")
+                .append(opName)
+                .append("\",\"name\":\"node")
+                .append(id)
+                .append("\",\"attrs\":{");
+        for (int i = 0; i < keys.length; ++i) {
+            if (i > 0) {
+                node.append(',');
+            }
+            node.append('"')
+                    .append(escape(keys[i]))
+                    .append("\":\"")
+                    .append(escape(values[i]))
+                    .append('"');
+        }
+        node.append("},\"inputs\":[").append(inputs).append("]}");
+        for (Pointer output : outputs) {
+            if (variables.containsKey(output)) {
+                // the graph would compute a new value instead of updating the input
+                failure = opName + " writes to an input of the graph";
+                return;
+            }
+        }
+        nodes.add(node.toString());
+        for (int i = 0; i < outputs.length; ++i) {
+            // the latest operator to write an NDArray is the one that defines its value
+            entries.put(outputs[i], "[" + id + ',' + i + ",0]");
+        }
+    }
+
+    private String getEntry(Pointer handle) {
+        String entry = entries.get(handle);
+        if (entry == null) {
+            String name = variables.get(handle);
+            if (name == null) {
+                return null;
+            }
+            int id = nodes.size();
+            nodes.add("{\"op\":\"null\",\"name\":\"" + escape(name) + "\",\"inputs\":[]}");
+            argNodes.add(id);
+            entry = "[" + id + ",0,0]";
+            entries.put(handle, entry);
+        }
+        return entry;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
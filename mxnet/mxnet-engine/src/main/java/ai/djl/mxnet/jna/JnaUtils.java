@@ -26,12 +26,14 @@ import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
 import ai.djl.nn.Parameter;
+import ai.djl.util.Pair;
 import ai.djl.util.PairList;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.PointerByReference;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.charset.StandardCharsets;
@@ -68,7 +70,8 @@ public final class JnaUtils {
 
     private static final MxnetLibrary LIB = LibUtils.loadLibrary();
 
-    private static final Map<String, FunctionInfo> OPS = getNdArrayFunctions();
+    // resolved on first use, resolving every operator up front is slow
+    private static final Map<String, FunctionInfo> OPS = new ConcurrentHashMap<>();
 
     private JnaUtils() {}
 
@@ -100,26 +103,43 @@ public final class JnaUtils {
     }
 
     public static Map<String, FunctionInfo> getNdArrayFunctions() {
-        Set<String> opNames = JnaUtils.getAllOpNames();
         Map<String, FunctionInfo> map = new ConcurrentHashMap<>();
-
-        for (String opName : opNames) {
-            PointerByReference ref = new PointerByReference();
-            checkCall(LIB.NNGetOpHandle(opName, ref));
-
-            String functionName = getOpNamePrefix(opName);
-
-            // System.out.println("Name: " + opName + "/" + functionName);
-            map.put(functionName, getFunctionByName(opName, functionName, ref.getValue()));
+        for (String functionName : OpNames.MAP.keySet()) {
+            map.put(functionName, op(functionName));
         }
         return map;
     }
 
     public static FunctionInfo op(String opName) {
-        if (!OPS.containsKey(opName)) {
+        FunctionInfo info = OPS.get(opName);
+        if (info != null) {
+            return info;
+        }
+        String name = OpNames.MAP.get(opName);
+        if (name == null) {
             throw new IllegalArgumentException("Unknown operator: " + opName);
         }
-        return OPS.get(opName);
+        return OPS.computeIfAbsent(opName, k -> getFunctionInfo(name, k));
+    }
+
+    private static FunctionInfo getFunctionInfo(String opName, String functionName) {
+        PointerByReference ref = new PointerByReference();
+        checkCall(LIB.NNGetOpHandle(opName, ref));
+        return getFunctionByName(opName, functionName, ref.getValue());
+    }
+
+    private static Map<String, String> getOpNames() {
+        Map<String, String> map = new ConcurrentHashMap<>();
+        for (String opName : getAllOpNames()) {
+            String functionName = getOpNamePrefix(opName);
+            if (functionName.equals(opName)) {
+                map.put(functionName, opName);
+            } else {
+                // an operator without prefix takes precedence over a prefixed one
+                map.putIfAbsent(functionName, opName);
+            }
+        }
+        return map;
     }
 
     private static FunctionInfo getFunctionByName(
@@ -157,7 +177,7 @@ public final class JnaUtils {
             }
         }
 
-        return new FunctionInfo(handle, functionName, arguments);
+        return new FunctionInfo(handle, functionName, name, arguments);
     }
 
     /*
@@ -453,6 +473,12 @@ public final class JnaUtils {
         checkCall(LIB.MXNDArrayWaitToWrite(ndArray));
     }
 
+    public static Pointer getDataPointer(Pointer ndArray) {
+        PointerByReference ref = new PointerByReference();
+        checkCall(LIB.MXNDArrayGetData(ndArray, ref));
+        return ref.getValue();
+    }
+
     public static void waitAll() {
         checkCall(LIB.MXNDArrayWaitAll());
     }
@@ -468,43 +494,26 @@ public final class JnaUtils {
         checkCall(LIB.MXNDArraySyncCopyFromCPU(ndArray, pointer, size));
     }
 
-    public static PairList<Pointer, SparseFormat> imperativeInvoke(
+    static void imperativeInvoke(
             Pointer function,
+            int numInputs,
             PointerArray inputs,
-            PointerByReference destRef,
-            PairList<String, ?> params) {
-        String[] keys;
-        String[] values;
-        if (params == null) {
-            keys = EMPTY_ARRAY;
-            values = EMPTY_ARRAY;
-        } else {
-            keys = params.keyArray(EMPTY_ARRAY);
-            values = params.values().stream().map(Object::toString).toArray(String[]::new);
-        }
-        PointerByReference destSType = new PointerByReference();
-        IntBuffer numOutputs = IntBuffer.allocate(1);
-        numOutputs.put(0, 1);
-
+            IntBuffer numOutputs,
+            PointerByReference outputs,
+            String[] keys,
+            String[] values,
+            PointerByReference outputTypes) {
         checkCall(
                 LIB.MXImperativeInvokeEx(
                         function,
-                        inputs.numElements(),
+                        numInputs,
                         inputs,
                         numOutputs,
-                        destRef,
+                        outputs,
                         keys.length,
                         keys,
                         values,
-                        destSType));
-        int numOfOutputs = numOutputs.get(0);
-        Pointer[] ptrArray = destRef.getValue().getPointerArray(0, numOfOutputs);
-        int[] sTypes = destSType.getValue().getIntArray(0, numOfOutputs);
-        PairList<Pointer, SparseFormat> pairList = new PairList<>();
-        for (int i = 0; i < numOfOutputs; i++) {
-            pairList.add(ptrArray[i], SparseFormat.fromValue(sTypes[i]));
-        }
-        return pairList;
+                        outputTypes));
     }
 
     public static SparseFormat getStorageType(Pointer ndArray) {
@@ -839,23 +848,21 @@ public final class JnaUtils {
         return toStringArray(ref, size.get());
     }
 
-    /* Need tests
     public static String symbolToJson(Pointer symbol) {
         String[] out = new String[1];
         checkCall(LIB.MXSymbolSaveToJSON(symbol, out));
         return out[0];
     }
-     */
 
     public static void freeSymbol(Pointer symbol) {
         checkCall(LIB.MXSymbolFree(symbol));
     }
 
-    /* Need tests
     public static void saveSymbol(Pointer symbol, String path) {
         checkCall(LIB.MXSymbolSaveToFile(symbol, path));
     }
 
+    /* Need tests
     public static Pointer copySymbol(Pointer symbol) {
         PointerByReference ref = new PointerByReference();
         checkCall(LIB.MXSymbolCopy(symbol, ref));
@@ -1113,12 +1120,6 @@ public final class JnaUtils {
     }
 
     /* Need tests
-    public static Pointer createSymbolFromJson(String json) {
-        PointerByReference ref = new PointerByReference();
-        checkCall(LIB.MXSymbolCreateFromJSON(json, ref));
-        return ref.getValue();
-    }
-
     public static Pointer compose(Pointer symbol, String name, String[] keys) {
         PointerByReference ref = new PointerByReference();
 
@@ -1200,36 +1201,50 @@ public final class JnaUtils {
         }
         return null;
     }
+     */
 
-    public static Pointer quantizeSymbol(
+    public static Pair<Pointer, String[]> quantizeSymbol(
             Pointer symbol,
+            Device device,
             String[] excludedSymbols,
+            String[] excludedOperators,
             String[] offlineParams,
             String quantizedDType,
-            byte calibQuantize) {
+            String quantizeMode) {
         PointerByReference ref = new PointerByReference();
+        IntBuffer size = IntBuffer.allocate(1);
+        PointerByReference calibNames = new PointerByReference();
+        int[] deviceType = {DeviceType.toDeviceType(device)};
         checkCall(
                 LIB.MXQuantizeSymbol(
                         symbol,
                         ref,
+                        deviceType,
                         excludedSymbols.length,
                         excludedSymbols,
+                        excludedOperators.length,
+                        excludedOperators,
                         offlineParams.length,
                         offlineParams,
                         quantizedDType,
-                        calibQuantize));
-        return ref.getValue();
+                        (byte) 1,
+                        quantizeMode,
+                        size,
+                        calibNames));
+        return new Pair<>(ref.getValue(), toStringArray(calibNames, size.get()));
     }
 
     public static Pointer setCalibTableToQuantizedSymbol(
-            Pointer symbol,
-            String[] layerNames,
-            FloatBuffer lowQuantiles,
-            FloatBuffer highQuantiles) {
+            Pointer symbol, String[] layerNames, float[] lowQuantiles, float[] highQuantiles) {
         PointerByReference ref = new PointerByReference();
         checkCall(
                 LIB.MXSetCalibTableToQuantizedSymbol(
-                        symbol, layerNames.length, layerNames, lowQuantiles, highQuantiles, ref));
+                        symbol,
+                        layerNames.length,
+                        layerNames,
+                        FloatBuffer.wrap(lowQuantiles),
+                        FloatBuffer.wrap(highQuantiles),
+                        ref));
         return ref.getValue();
     }
 
@@ -1238,7 +1253,6 @@ public final class JnaUtils {
         checkCall(LIB.MXGenBackendSubgraph(symbol, backend, ref));
         return ref.getValue();
     }
-     */
 
     /////////////////////////////////
     // MXNet Executors
@@ -1657,11 +1671,66 @@ public final class JnaUtils {
     // cached Op
     //////////////////////////////////
 
+    /**
+     * Creates a symbol from its JSON representation.
+     *
+     * @param json the JSON representation of the symbol
+     * @return the handle of the new symbol
+     */
+    public static Pointer createSymbolFromJson(String json) {
+        PointerByReference ref = new PointerByReference();
+        checkCall(LIB.MXSymbolCreateFromJSON(json, ref));
+        return ref.getValue();
+    }
+
+    /**
+     * Creates a symbol that groups the outputs of several symbols.
+     *
+     * @param symbols the handles of the symbols to group
+     * @return the handle of the grouped symbol
+     */
+    public static Pointer createSymbolGroup(Pointer[] symbols) {
+        PointerByReference symbolsRef = new PointerByReference();
+        symbolsRef.setPointer(new PointerArray(symbols));
+        PointerByReference ref = new PointerByReference();
+        checkCall(LIB.MXSymbolCreateGroup(symbols.length, symbolsRef, ref));
+        return ref.getValue();
+    }
+
+    /**
+     * Creates a CachedOp from a symbol with the given flags.
+     *
+     * <p>The thread safe CachedOp is created when the thread safe predictor is used.
+     *
+     * @param symbol the handle of the symbol
+     * @param keys the names of the CachedOp flags
+     * @param values the values of the CachedOp flags
+     * @return the handle of the new CachedOp
+     */
+    public static Pointer createCachedOp(Pointer symbol, String[] keys, String[] values) {
+        PointerByReference ref = new PointerByReference();
+        if (useThreadSafePredictor()) {
+            checkCall(
+                    LIB.MXCreateCachedOpEX(
+                            symbol,
+                            keys.length,
+                            keys,
+                            values,
+                            ref,
+                            useThreadSafePredictorByte()));
+        } else {
+            checkCall(LIB.MXCreateCachedOpEx(symbol, keys.length, keys, values, ref));
+        }
+        return ref.getValue();
+    }
+
     /**
      * Creates cached op flags.
      *
      * <p>data_indices : [0, 2, 4] Used to label input location, param_indices : [1, 3] Used to
-     * label param location
+     * label param location. The other flags are taken from {@link
+     * MxSymbolBlock#getCachedOpFlags()}, static_alloc and static_shape are ignored when the thread
+     * safe predictor is used.
      *
      * @param block the {@link MxSymbolBlock} that loaded in the backend
      * @param manager the NDManager used to create NDArray
@@ -1687,28 +1756,30 @@ public final class JnaUtils {
             ++index;
         }
 
-        // Creating CachedOp
-        Pointer symbolHandle = symbol.getHandle();
-        PointerByReference ref = new PointerByReference();
-        if (useThreadSafePredictor()) {
-            String[] keys = {"data_indices", "param_indices"};
-            String[] values = {dataIndices.values().toString(), paramIndices.toString()};
-            checkCall(
-                    LIB.MXCreateCachedOpEX(
-                            symbolHandle,
-                            keys.length,
-                            keys,
-                            values,
-                            ref,
-                            useThreadSafePredictorByte()));
-        } else {
-            // static_alloc and static_shape are enabled by default
-            String[] keys = {"data_indices", "param_indices", "static_alloc", "static_shape"};
-            String[] values = {dataIndices.values().toString(), paramIndices.toString(), "1", "1"};
-            checkCall(LIB.MXCreateCachedOpEx(symbolHandle, keys.length, keys, values, ref));
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        keys.add("data_indices");
+        values.add(dataIndices.values().toString());
+        keys.add("param_indices");
+        values.add(paramIndices.toString());
+        boolean threadSafe = useThreadSafePredictor();
+        for (Map.Entry<String, String> entry : block.getCachedOpFlags().entrySet()) {
+            String key = entry.getKey();
+            if (threadSafe && ("static_alloc".equals(key) || "static_shape".equals(key))) {
+                // thread safe CachedOp does not support static memory planning
+                continue;
+            }
+            keys.add(key);
+            values.add(entry.getValue());
         }
 
-        return new CachedOp(ref.getValue(), manager, parameters, paramIndices, dataIndices);
+        // Creating CachedOp
+        Pointer handle =
+                createCachedOp(
+                        symbol.getHandle(),
+                        keys.toArray(EMPTY_ARRAY),
+                        values.toArray(EMPTY_ARRAY));
+        return new CachedOp(handle, manager, parameters, paramIndices, dataIndices);
     }
 
     public static void freeCachedOp(Pointer handle) {
@@ -1835,4 +1906,12 @@ public final class JnaUtils {
         }
         return name;
     }
+
+    /** Maps the function names to the MXNet operator names, loaded on the first lookup. */
+    private static final class OpNames {
+
+        static final Map<String, String> MAP = getOpNames();
+
+        private OpNames() {}
+    }
 }
@@ -12,6 +12,7 @@
  */
 package ai.djl.mxnet.jna;
 
+import ai.djl.mxnet.engine.LeakDetector;
 import com.sun.jna.Pointer;
 import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
@@ -27,14 +28,12 @@ public abstract class NativeResource implements AutoCloseable {
 
     protected final AtomicReference<Pointer> handle;
     private String uid;
-    private Exception exception;
+    private LeakDetector.AllocationSite allocationSite;
 
     protected NativeResource(Pointer pointer) {
         this.handle = new AtomicReference<>(pointer);
         uid = String.valueOf(Pointer.nativeValue(pointer));
-        if (logger.isTraceEnabled()) {
-            exception = new Exception();
-        }
+        allocationSite = LeakDetector.capture(logger.isTraceEnabled());
     }
 
     /**
@@ -68,6 +67,15 @@ public abstract class NativeResource implements AutoCloseable {
         return uid;
     }
 
+    /**
+     * Gets where this resource was created, if it was recorded (internal).
+     *
+     * @return the {@link LeakDetector.AllocationSite} of this resource, or {@code null}
+     */
+    public final LeakDetector.AllocationSite getAllocationSite() {
+        return allocationSite;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close() {
@@ -78,14 +86,9 @@ public abstract class NativeResource implements AutoCloseable {
     @SuppressWarnings("deprecation")
     @Override
     protected void finalize() throws Throwable {
-        if (handle.get() != null) {
-            if (exception != null) {
-                logger.warn(
-                        "Resource ({}) was not closed explicitly: {}",
-                        getUid(),
-                        getClass().getSimpleName());
-                logger.warn("Resource was created:", exception);
-            }
+        if (handle.get() != null && allocationSite != null) {
+            LeakDetector.reportUnclosed(
+                    getClass().getSimpleName() + " (" + getUid() + ')', allocationSite);
         }
         close();
         super.finalize();
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.jna;
+
+import ai.djl.mxnet.engine.MxNDArray;
+import ai.djl.mxnet.engine.MxNDManager;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.util.Pair;
+import ai.djl.util.PairList;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A {@code PreparedOp} is an operator of the MXNet Engine whose parameters are encoded ahead of
+ * time.
+ *
+ * <p>Invoking an operator by name looks up its {@link FunctionInfo} and converts every parameter
+ * to a {@code String} on each call. A {@code PreparedOp} is meant to be created once and stored in
+ * a static field: the operator handle is resolved on first use, the constant parameters are
+ * encoded when the {@code PreparedOp} is created, and only the values of the dynamic parameters,
+ * such as the scalar of {@code _npi_add_scalar}, are converted per call. The native argument
+ * buffers are reused by each thread.
+ */
+public final class PreparedOp {
+
+    private static final ThreadLocal<InvokeBuffers> BUFFERS =
+            ThreadLocal.withInitial(InvokeBuffers::new);
+
+    private String opName;
+    private volatile FunctionInfo function;
+    private String[] keys;
+    private String[] values;
+    private int numConstants;
+
+    private PreparedOp(
+            String opName, FunctionInfo function, PairList<String, ?> constants, String[] dynamic) {
+        this.opName = opName;
+        this.function = function;
+        numConstants = constants == null ? 0 : constants.size();
+        keys = new String[numConstants + dynamic.length];
+        values = new String[keys.length];
+        for (int i = 0; i < numConstants; ++i) {
+            Pair<String, ?> pair = constants.get(i);
+            keys[i] = pair.getKey();
+            values[i] = pair.getValue().toString();
+        }
+        System.arraycopy(dynamic, 0, keys, numConstants, dynamic.length);
+    }
+
+    /**
+     * Creates a {@code PreparedOp} for an operator without constant parameters.
+     *
+     * @param opName the name of the operator
+     * @param dynamicKeys the names of the parameters whose values are given on each call
+     * @return a new {@code PreparedOp}
+     */
+    public static PreparedOp of(String opName, String... dynamicKeys) {
+        return new PreparedOp(opName, null, null, dynamicKeys);
+    }
+
+    /**
+     * Creates a {@code PreparedOp} for an operator.
+     *
+     * @param opName the name of the operator
+     * @param constants the parameters that are the same on every call
+     * @param dynamicKeys the names of the parameters whose values are given on each call
+     * @return a new {@code PreparedOp}
+     */
+    public static PreparedOp of(
+            String opName, PairList<String, ?> constants, String... dynamicKeys) {
+        return new PreparedOp(opName, null, constants, dynamicKeys);
+    }
+
+    /**
+     * Creates a {@code PreparedOp} for a single call of an operator.
+     *
+     * @param function the operator
+     * @param params the parameters of the call
+     * @return a new {@code PreparedOp}
+     */
+    static PreparedOp of(FunctionInfo function, PairList<String, ?> params) {
+        return new PreparedOp(function.getFunctionName(), function, params, JnaUtils.EMPTY_ARRAY);
+    }
+
+    /**
+     * Calls the operator and returns its first output.
+     *
+     * @param manager the manager to attach the result to
+     * @param src the input NDArray(s) to the operator
+     * @param dynamicValues the values of the dynamic parameters, in the order of their names
+     * @return the first output of the operator
+     */
+    public NDArray invoke(MxNDManager manager, NDArray[] src, Object... dynamicValues) {
+        return invokeAll(manager, src, dynamicValues)[0];
+    }
+
+    /**
+     * Calls the operator and returns all of its outputs.
+     *
+     * @param manager the manager to attach the result to
+     * @param src the input NDArray(s) to the operator
+     * @param dynamicValues the values of the dynamic parameters, in the order of their names
+     * @return the outputs of the operator
+     */
+    public NDArray[] invokeAll(MxNDManager manager, NDArray[] src, Object... dynamicValues) {
+        InvokeBuffers buffers = BUFFERS.get();
+        PointerByReference outputs = buffers.outputs;
+        outputs.setValue(null);
+        int numOutputs = call(buffers, src, 1, dynamicValues);
+
+        Pointer[] handles = outputs.getValue().getPointerArray(0, numOutputs);
+        int[] types = buffers.outputTypes.getValue().getIntArray(0, numOutputs);
+        NDArray[] ret = new NDArray[numOutputs];
+        for (int i = 0; i < numOutputs; ++i) {
+            SparseFormat format = SparseFormat.fromValue(types[i]);
+            if (format == SparseFormat.DENSE) {
+                ret[i] = manager.create(handles[i]);
+            } else {
+                ret[i] = manager.create(handles[i], format);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Calls the operator and writes its outputs to existing NDArrays.
+     *
+     * @param src the input NDArray(s) to the operator
+     * @param dest the destination NDArray(s) to be overwritten with the result of the operator
+     * @param dynamicValues the values of the dynamic parameters, in the order of their names
+     */
+    public void invoke(NDArray[] src, NDArray[] dest, Object... dynamicValues) {
+        InvokeBuffers buffers = BUFFERS.get();
+        buffers.dest = fill(buffers.dest, dest);
+        buffers.outputs.setValue(buffers.dest);
+        call(buffers, src, dest.length, dynamicValues);
+    }
+
+    /**
+     * Returns the name of the operator.
+     *
+     * @return the name of the operator
+     */
+    public String getOpName() {
+        return opName;
+    }
+
+    private int call(InvokeBuffers buffers, NDArray[] src, int numDest, Object[] dynamicValues) {
+        if (dynamicValues.length != keys.length - numConstants) {
+            throw new IllegalArgumentException(
+                    "Expected " + (keys.length - numConstants) + " parameters for " + opName);
+        }
+        String[] callValues = values;
+        if (dynamicValues.length > 0) {
+            callValues = values.clone();
+            for (int i = 0; i < dynamicValues.length; ++i) {
+                callValues[numConstants + i] = encode(dynamicValues[i]);
+            }
+        }
+
+        buffers.inputs = fill(buffers.inputs, src);
+        IntBuffer numOutputs = buffers.numOutputs;
+        numOutputs.clear();
+        numOutputs.put(0, numDest);
+        FunctionInfo info = getFunction();
+        JnaUtils.imperativeInvoke(
+                info.getHandle(),
+                src.length,
+                buffers.inputs,
+                numOutputs,
+                buffers.outputs,
+                keys,
+                callValues,
+                buffers.outputTypes);
+        int num = numOutputs.get(0);
+        GraphTracer.record(
+                info.getOpName(), keys, callValues, src, buffers.outputs.getValue(), num);
+        return num;
+    }
+
+    private FunctionInfo getFunction() {
+        FunctionInfo info = function;
+        if (info == null) {
+            info = JnaUtils.op(opName);
+            function = info;
+        }
+        return info;
+    }
+
+    private static String encode(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "True" : "False";
+        }
+        return value.toString();
+    }
+
+    private static PointerArray fill(PointerArray array, NDArray[] arrays) {
+        PointerArray ret = array;
+        if (ret.numElements() < arrays.length) {
+            ret = new PointerArray(new Pointer[arrays.length]);
+        }
+        for (int i = 0; i < arrays.length; ++i) {
+            ret.setPointer((long) i * Native.POINTER_SIZE, ((MxNDArray) arrays[i]).getHandle());
+        }
+        return ret;
+    }
+
+    /** The native argument buffers of the calling thread. */
+    private static final class InvokeBuffers {
+
+        IntBuffer numOutputs =
+                ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        PointerByReference outputs = new PointerByReference();
+        PointerByReference outputTypes = new PointerByReference();
+        PointerArray inputs = new PointerArray(new Pointer[4]);
+        PointerArray dest = new PointerArray(new Pointer[4]);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+import ai.djl.mxnet.jna.LibUtils;
+import ai.djl.mxnet.jna.PointerArray;
+import ai.djl.mxnet.test.MockMxnetLibrary;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.Assert;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+
+@PrepareForTest(LibUtils.class)
+public class LeakDetectorTest extends PowerMockTestCase {
+
+    private static final int BATCHES = 5;
+
+    @BeforeClass
+    public void prepare() {
+        mockStatic(LibUtils.class);
+        PowerMockito.when(LibUtils.loadLibrary()).thenReturn(new MockMxnetLibrary());
+        System.setProperty("ai.djl.mxnet.leak_detection", "true");
+        System.setProperty("ai.djl.mxnet.leak_detection.batches", String.valueOf(BATCHES));
+        LeakDetector.configure();
+    }
+
+    @AfterClass
+    public void postProcessing() {
+        System.clearProperty("ai.djl.mxnet.leak_detection");
+        System.clearProperty("ai.djl.mxnet.leak_detection.batches");
+        LeakDetector.configure();
+    }
+
+    @Test
+    public void testAttachedLeak() {
+        long leaks = LeakDetector.getLeakCount();
+        try (MxNDManager model = MxNDManager.getSystemManager().newSubManager()) {
+            LeakDetector.watch(model);
+            // parameters are attached to the model manager and live as long as the model
+            attachArray(model);
+            runBatches(BATCHES * 3);
+
+            MxNDManager trainer = model.newSubManager();
+            // created in the first batches of the trainer, like optimizer states
+            attachArray(trainer);
+            runBatches(BATCHES * 3);
+            Assert.assertEquals(LeakDetector.getLeakCount(), leaks);
+
+            // an array that stays attached to the trainer long after its first batches
+            attachArray(trainer);
+            runBatches(BATCHES * 3);
+            Assert.assertEquals(LeakDetector.getLeakCount(), leaks + 1);
+        }
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    private static void attachArray(MxNDManager manager) {
+        MxNDArray array = new MxNDArray(manager, new PointerArray());
+        manager.attach(array.getUid(), array);
+    }
+
+    private static void runBatches(int count) {
+        for (int i = 0; i < count; ++i) {
+            LeakDetector.batchCompleted();
+        }
+    }
+}
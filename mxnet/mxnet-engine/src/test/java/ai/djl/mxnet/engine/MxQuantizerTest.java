@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import java.util.Arrays;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MxQuantizerTest {
+
+    @Test
+    public void testOptimalThreshold() {
+        // a uniform distribution should not be clipped
+        long[] histogram = new long[8001];
+        Arrays.fill(histogram, 100);
+        float threshold = MxQuantizer.getOptimalThreshold(histogram, 10f, 255);
+        Assert.assertTrue(threshold > 9f, "threshold: " + threshold);
+
+        // a peaked distribution with a few outliers should be clipped
+        histogram = new long[8001];
+        for (int i = 0; i < histogram.length; ++i) {
+            double x = (i - 4000) / 400d;
+            histogram[i] = Math.round(100000 * Math.exp(-x * x / 2));
+        }
+        histogram[0] = 1;
+        histogram[8000] = 1;
+        threshold = MxQuantizer.getOptimalThreshold(histogram, 10f, 255);
+        Assert.assertTrue(threshold > 1f && threshold < 7f, "threshold: " + threshold);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ * with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package ai.djl.mxnet.engine;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SymbolRewriterTest {
+
+    @Test
+    public void testDescribeSubgraphs() {
+        String json =
+                "{\"nodes\": ["
+                        + "{\"op\": \"null\", \"name\": \"data\", \"inputs\": []},"
+                        + "{\"op\": \"_sg_mkldnn_conv\", \"name\": \"conv0\","
+                        + " \"inputs\": [[0, 0, 0]], \"subgraphs\": [{\"nodes\": ["
+                        + "{\"op\": \"null\", \"name\": \"sg_data\", \"inputs\": []},"
+                        + "{\"op\": \"Convolution\", \"name\": \"conv0\", \"inputs\": [[0, 0, 0]]},"
+                        + "{\"op\": \"Activation\", \"name\": \"relu0\", \"inputs\": [[1, 0, 0]]}"
+                        + "], \"arg_nodes\": [0], \"heads\": [[2, 0, 0]]}]},"
+                        + "{\"op\": \"Flatten\", \"name\": \"flatten0\", \"inputs\": [[1, 0, 0]]}"
+                        + "], \"arg_nodes\": [0], \"heads\": [[2, 0, 0]]}";
+        List<String> subgraphs = SymbolRewriter.describeSubgraphs(json);
+        Assert.assertEquals(
+                subgraphs,
+                Collections.singletonList("conv0 (_sg_mkldnn_conv: Convolution, Activation)"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String json =
+                "{\"nodes\":["
+                        + "{\"op\":\"null\",\"name\":\"data\",\"inputs\":[]},"
+                        + "{\"op\":\"null\",\"name\":\"fc0_weight\",\"inputs\":[]},"
+                        + "{\"op\":\"FullyConnected\",\"name\":\"fc0\","
+                        + "\"attrs\":{\"no_bias\":\"True\",\"num_hidden\":\"10\"},"
+                        + "\"inputs\":[[0,0,0],[1,0,0]]}],"
+                        + "\"arg_nodes\":[0,1],\"heads\":[[2,0,0]],"
+                        + "\"attrs\":{\"mxnet_version\":[\"int\",10600],"
+                        + "\"note\":\"a \\\"quoted\\\" name\"}}";
+        Assert.assertEquals(new SymbolRewriter(json).toJson(), json);
+    }
+
+    @Test
+    public void testFoldBatchNorm() {
+        String json =
+                "{\"nodes\":["
+                        + variable("data")
+                        + variable("conv0_weight")
+                        + "{\"op\":\"Convolution\",\"name\":\"conv0\","
+                        + "\"attrs\":{\"kernel\":\"(3, 3)\",\"no_bias\":\"True\"},"
+                        + "\"inputs\":[[0,0,0],[1,0,0]]},"
+                        + variable("bn0_gamma")
+                        + variable("bn0_beta")
+                        + variable("bn0_moving_mean")
+                        + variable("bn0_moving_var")
+                        + "{\"op\":\"BatchNorm\",\"name\":\"bn0\","
+                        + "\"attrs\":{\"eps\":\"1e-05\",\"fix_gamma\":\"False\"},"
+                        + "\"inputs\":[[2,0,0],[3,0,0],[4,0,0],[5,0,0],[6,0,0]]}],"
+                        + "\"arg_nodes\":[0,1,3,4,5,6],\"heads\":[[7,0,0]]}";
+        SymbolRewriter rewriter = new SymbolRewriter(json);
+        List<SymbolRewriter.Fold> folds = rewriter.foldBatchNorm(isParameter());
+        Assert.assertEquals(folds.size(), 1);
+        SymbolRewriter.Fold fold = folds.get(0);
+        Assert.assertEquals(fold.gamma, "bn0_gamma");
+        Assert.assertEquals(fold.var, "bn0_moving_var");
+        Assert.assertEquals(fold.epsilon, 1e-5f);
+        Assert.assertFalse(fold.fixGamma);
+        Assert.assertEquals(fold.weight, "conv0_weight");
+        Assert.assertEquals(fold.bias, "conv0_bias");
+        Assert.assertTrue(fold.newBias);
+
+        String expected =
+                "{\"nodes\":["
+                        + variable("data")
+                        + variable("conv0_weight")
+                        + variable("conv0_bias")
+                        + "{\"op\":\"Convolution\",\"name\":\"conv0\","
+                        + "\"attrs\":{\"kernel\":\"(3, 3)\",\"no_bias\":\"False\"},"
+                        + "\"inputs\":[[0,0,0],[1,0,0],[2,0,0]]}],"
+                        + "\"arg_nodes\":[0,1,2],\"heads\":[[3,0,0]]}";
+        Assert.assertEquals(rewriter.toJson(), expected);
+    }
+
+    @Test
+    public void testFoldBatchNormWithBias() {
+        String json =
+                "{\"nodes\":["
+                        + variable("data")
+                        + variable("fc0_weight")
+                        + variable("fc0_bias")
+                        + "{\"op\":\"FullyConnected\",\"name\":\"fc0\","
+                        + "\"attrs\":{\"num_hidden\":\"10\"},"
+                        + "\"inputs\":[[0,0,0],[1,0,0],[2,0,0]]},"
+                        + variable("bn0_gamma")
+                        + variable("bn0_beta")
+                        + variable("bn0_moving_mean")
+                        + variable("bn0_moving_var")
+                        + "{\"op\":\"BatchNorm\",\"name\":\"bn0\","
+                        + "\"inputs\":[[3,0,0],[4,0,0],[5,0,0],[6,0,0],[7,0,0]]}],"
+                        + "\"arg_nodes\":[0,1,2,4,5,6,7],\"heads\":[[8,0,0]]}";
+        SymbolRewriter rewriter = new SymbolRewriter(json);
+        List<SymbolRewriter.Fold> folds = rewriter.foldBatchNorm(isParameter());
+        Assert.assertEquals(folds.size(), 1);
+        Assert.assertEquals(folds.get(0).bias, "fc0_bias");
+        Assert.assertFalse(folds.get(0).newBias);
+        Assert.assertEquals(folds.get(0).epsilon, 1e-3f);
+        Assert.assertTrue(folds.get(0).fixGamma);
+        Assert.assertTrue(rewriter.toJson().endsWith("\"arg_nodes\":[0,1,2],\"heads\":[[3,0,0]]}"));
+    }
+
+    @Test
+    public void testRemoveDropout() {
+        String json =
+                "{\"nodes\":["
+                        + variable("data")
+                        + "{\"op\":\"Dropout\",\"name\":\"dropout0\","
+                        + "\"attrs\":{\"p\":\"0.5\"},\"inputs\":[[0,0,0]]},"
+                        + "{\"op\":\"Activation\",\"name\":\"relu0\","
+                        + "\"attrs\":{\"act_type\":\"relu\"},\"inputs\":[[1,0,0]]}],"
+                        + "\"arg_nodes\":[0],\"heads\":[[2,0,0]]}";
+        SymbolRewriter rewriter = new SymbolRewriter(json);
+        rewriter.removeIdentities();
+        String expected =
+                "{\"nodes\":["
+                        + variable("data")
+                        + "{\"op\":\"Activation\",\"name\":\"relu0\","
+                        + "\"attrs\":{\"act_type\":\"relu\"},\"inputs\":[[0,0,0]]}],"
+                        + "\"arg_nodes\":[0],\"heads\":[[1,0,0]]}";
+        Assert.assertEquals(rewriter.toJson(), expected);
+    }
+
+    @Test
+    public void testKeepDropoutWithMask() {
+        // the mask output of the Dropout is a head of the graph, so the Dropout must stay
+        String json =
+                "{\"nodes\":["
+                        + variable("data")
+                        + "{\"op\":\"Dropout\",\"name\":\"dropout0\","
+                        + "\"attrs\":{\"p\":\"0.5\"},\"inputs\":[[0,0,0]]}],"
+                        + "\"arg_nodes\":[0],\"heads\":[[1,0,0],[1,1,0]]}";
+        SymbolRewriter rewriter = new SymbolRewriter(json);
+        rewriter.removeIdentities();
+        Assert.assertEquals(rewriter.toJson(), json);
+    }
+
+    private static String variable(String name) {
+        return "{\"op\":\"null\",\"name\":\"" + name + "\",\"inputs\":[]},";
+    }
+
+    private static Predicate<String> isParameter() {
+        return name -> !"data".equals(name);
+    }
+}
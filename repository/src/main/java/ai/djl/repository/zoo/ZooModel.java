@@ -14,18 +14,22 @@ package ai.djl.repository.zoo;
 
 import ai.djl.Model;
 import ai.djl.inference.Predictor;
+import ai.djl.inference.PredictorPool;
+import ai.djl.metric.Metrics;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.nn.Block;
 import ai.djl.training.Trainer;
 import ai.djl.training.TrainingConfig;
+import ai.djl.translate.TranslateException;
 import ai.djl.translate.Translator;
 import ai.djl.util.PairList;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -107,12 +111,38 @@ public class ZooModel<I, O> implements Model {
         return newPredictor(translator);
     }
 
+    /**
+     * Creates a new {@link PredictorPool} based on the model with the default translator.
+     *
+     * <p>Use a pool instead of one predictor per thread to bound the memory used by the model's
+     * predictors when serving from many threads.
+     *
+     * @param maxSize the maximum number of predictors in the pool
+     * @return an instance of {@code PredictorPool}
+     */
+    public PredictorPool<I, O> newPredictorPool(int maxSize) {
+        return new PredictorPool<>(this, translator, maxSize);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void warmup(List<PairList<String, Shape>> inputShapes, Metrics metrics)
+            throws TranslateException {
+        model.warmup(inputShapes, metrics);
+    }
+
     /** {@inheritDoc} */
     @Override
     public <P, Q> Predictor<P, Q> newPredictor(Translator<P, Q> translator) {
         return model.newPredictor(translator);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public <P, Q> Predictor<P, Q> newSharedPredictor(Translator<P, Q> translator) {
+        return model.newSharedPredictor(translator);
+    }
+
     /**
      * Returns the default translator.
      *
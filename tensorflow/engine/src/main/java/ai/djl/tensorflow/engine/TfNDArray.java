@@ -22,6 +22,7 @@ import ai.djl.ndarray.internal.NDArrayEx;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.ndarray.types.SparseFormat;
+import ai.djl.training.GradReq;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
@@ -158,6 +159,10 @@ public class TfNDArray implements NDArray {
     @Override
     public void attachGradient() {}
 
+    /** {@inheritDoc} */
+    @Override
+    public void attachGradient(GradReq gradReq) {}
+
     /** {@inheritDoc} */
     @Override
     public NDArray getGradient() {